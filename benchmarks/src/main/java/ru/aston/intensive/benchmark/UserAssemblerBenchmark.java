@@ -0,0 +1,70 @@
+package ru.aston.intensive.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import ru.aston.intensive.controller.UserControllerImpl;
+import ru.aston.intensive.dto.UserResponseDto;
+import ru.aston.intensive.entity.UserEntity;
+import ru.aston.intensive.util.assembler.UserEntityToModelAssembler;
+import ru.aston.intensive.util.assembler.UserLinkTemplates;
+import ru.aston.intensive.util.mapper.UserMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+/**
+ * HATEOAS assembly of user models, with {@link #linkToSingle()} as the reflective
+ * {@code linkTo(methodOn(...))} baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserAssemblerBenchmark {
+
+    private final UserEntityToModelAssembler assembler = new UserEntityToModelAssembler();
+
+    private UserEntity user;
+    private List<UserEntity> users;
+
+    @Setup
+    public void setUp() {
+        UserFixtures.bindRequest();
+        user = UserFixtures.user(1L);
+        users = UserFixtures.users(UserFixtures.LIST_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        UserFixtures.unbindRequest();
+    }
+
+    @Benchmark
+    public EntityModel<UserResponseDto> toModelSingle() {
+        return assembler.toModel(user);
+    }
+
+    @Benchmark
+    public List<EntityModel<UserResponseDto>> toModelList() {
+        UserLinkTemplates linkTemplates = assembler.currentLinkTemplates();
+        return users.stream()
+                .map(entity -> assembler.toModel(entity, linkTemplates))
+                .toList();
+    }
+
+    @Benchmark
+    public EntityModel<UserResponseDto> linkToSingle() {
+        return EntityModel.of(UserMapper.entityToDto(user),
+                linkTo(methodOn(UserControllerImpl.class).find(user.getId(), null)).withSelfRel(),
+                linkTo(methodOn(UserControllerImpl.class).create(null)).withRel("create"),
+                linkTo(methodOn(UserControllerImpl.class).update(user.getId(), null)).withRel("update"),
+                linkTo(methodOn(UserControllerImpl.class).delete(user.getId())).withRel("delete"),
+                linkTo(methodOn(UserControllerImpl.class).findAll()).withRel(IanaLinkRelations.COLLECTION));
+    }
+}
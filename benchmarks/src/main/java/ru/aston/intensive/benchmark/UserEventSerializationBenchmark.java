@@ -0,0 +1,53 @@
+package ru.aston.intensive.benchmark;
+
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import ru.aston.intensive.dto.UserEvent;
+import ru.aston.intensive.enumerated.UserStatus;
+import ru.aston.intensive.util.config.KafkaProducerConfig;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of user events with the serializers of the producer factory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserEventSerializationBenchmark {
+
+    private static final String TOPIC = "user-events";
+
+    private StringSerializer keySerializer;
+    private JsonSerializer<UserEvent> valueSerializer;
+    private UserEvent event;
+
+    @Setup
+    public void setUp() {
+        keySerializer = new StringSerializer();
+        valueSerializer = KafkaProducerConfig.jsonSerializer(Jackson2ObjectMapperBuilder.json().build());
+        event = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "user1@example.com");
+    }
+
+    @TearDown
+    public void tearDown() {
+        keySerializer.close();
+        valueSerializer.close();
+    }
+
+    @Benchmark
+    public byte[] key() {
+        return keySerializer.serialize(TOPIC, event.email());
+    }
+
+    @Benchmark
+    public byte[] value() {
+        return valueSerializer.serialize(TOPIC, event);
+    }
+}
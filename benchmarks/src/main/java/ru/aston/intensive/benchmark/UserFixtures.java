@@ -0,0 +1,79 @@
+package ru.aston.intensive.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.hateoas.mediatype.MessageResolver;
+import org.springframework.hateoas.mediatype.hal.CurieProvider;
+import org.springframework.hateoas.mediatype.hal.Jackson2HalModule;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.aston.intensive.entity.UserEntity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Test data and the infrastructure the benchmarks share with the running service.
+ */
+final class UserFixtures {
+
+    static final int LIST_SIZE = 100;
+
+    private UserFixtures() {
+    }
+
+    static UserEntity user(long id) {
+        return UserEntity.builder()
+                .id(id)
+                .name("User " + id)
+                .email("user" + id + "@example.com")
+                .age(20 + (int) (id % 50))
+                .createdAt(LocalDateTime.of(2025, 1, 1, 12, 0))
+                .build();
+    }
+
+    static List<UserEntity> users(int size) {
+        List<UserEntity> users = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            users.add(user(id));
+        }
+        return users;
+    }
+
+    /**
+     * Object mapper configured like the one rendering {@code application/hal+json} in the service.
+     */
+    static ObjectMapper halObjectMapper() {
+        return halObjectMapper(new JsonFactory());
+    }
+
+    /**
+     * HAL object mapper writing with the given factory, like the Smile and CBOR converters of the service.
+     */
+    static ObjectMapper halObjectMapper(JsonFactory factory) {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory).build();
+        objectMapper.registerModule(new Jackson2HalModule());
+        objectMapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                new DefaultLinkRelationProvider(), CurieProvider.NONE, MessageResolver.DEFAULTS_ONLY));
+        return objectMapper;
+    }
+
+    /**
+     * Binds a request to the current thread, as the dispatcher servlet does, for code resolving
+     * links against the current request.
+     */
+    static void bindRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/");
+        request.setServerName("localhost");
+        request.setServerPort(8080);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    static void unbindRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+}
@@ -0,0 +1,84 @@
+package ru.aston.intensive.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import ru.aston.intensive.dto.UserResponseDto;
+import ru.aston.intensive.util.assembler.UserEntityToModelAssembler;
+import ru.aston.intensive.util.assembler.UserLinkTemplates;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization of a user and of a page of users in every negotiable format, and of the page
+ * gzipped the way the server compresses responses above its threshold. The setup prints the
+ * payload sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserFormatBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+    private EntityModel<UserResponseDto> user;
+    private CollectionModel<EntityModel<UserResponseDto>> page;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = UserFixtures.halObjectMapper(switch (format) {
+            case "smile" -> new SmileFactory();
+            case "cbor" -> new CBORFactory();
+            default -> new JsonFactory();
+        });
+
+        UserFixtures.bindRequest();
+        UserEntityToModelAssembler assembler = new UserEntityToModelAssembler();
+        UserLinkTemplates linkTemplates = assembler.currentLinkTemplates();
+        user = assembler.toModel(UserFixtures.user(1L), linkTemplates);
+        page = CollectionModel.of(UserFixtures.users(UserFixtures.LIST_SIZE).stream()
+                        .map(entity -> assembler.toModel(entity, linkTemplates))
+                        .toList(),
+                Link.of("http://localhost:8080/api/users/page?size=" + UserFixtures.LIST_SIZE));
+        UserFixtures.unbindRequest();
+
+        System.out.printf("%n%s: user %d bytes, page of %d users %d bytes, gzipped %d bytes%n", format,
+                single().length, UserFixtures.LIST_SIZE, page().length, pageGzip().length);
+    }
+
+    @Benchmark
+    public byte[] single() throws IOException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] page() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] pageGzip() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, page);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
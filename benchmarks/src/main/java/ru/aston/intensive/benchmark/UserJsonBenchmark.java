@@ -0,0 +1,62 @@
+package ru.aston.intensive.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.Link;
+import ru.aston.intensive.dto.UserResponseDto;
+import ru.aston.intensive.util.assembler.UserEntityToModelAssembler;
+import ru.aston.intensive.util.assembler.UserLinkTemplates;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HAL JSON serialization of the responses of {@code find}, {@code findAll} and {@code findPage}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserJsonBenchmark {
+
+    private final ObjectMapper objectMapper = UserFixtures.halObjectMapper();
+
+    private EntityModel<UserResponseDto> user;
+    private List<EntityModel<UserResponseDto>> users;
+    private CollectionModel<EntityModel<UserResponseDto>> page;
+
+    @Setup
+    public void setUp() {
+        UserFixtures.bindRequest();
+        UserEntityToModelAssembler assembler = new UserEntityToModelAssembler();
+        UserLinkTemplates linkTemplates = assembler.currentLinkTemplates();
+
+        user = assembler.toModel(UserFixtures.user(1L), linkTemplates);
+        users = UserFixtures.users(UserFixtures.LIST_SIZE).stream()
+                .map(entity -> assembler.toModel(entity, linkTemplates))
+                .toList();
+        page = CollectionModel.of(users,
+                Link.of("http://localhost:8080/api/users/page?size=" + UserFixtures.LIST_SIZE));
+        UserFixtures.unbindRequest();
+    }
+
+    @Benchmark
+    public byte[] single() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] list() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(users);
+    }
+
+    @Benchmark
+    public byte[] page() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,47 @@
+package ru.aston.intensive.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.aston.intensive.dto.UserRequestDto;
+import ru.aston.intensive.dto.UserResponseDto;
+import ru.aston.intensive.entity.UserEntity;
+import ru.aston.intensive.util.mapper.UserMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMappingBenchmark {
+
+    private UserEntity user;
+    private List<UserEntity> users;
+    private UserRequestDto userRequestDto;
+
+    @Setup
+    public void setUp() {
+        user = UserFixtures.user(1L);
+        users = UserFixtures.users(UserFixtures.LIST_SIZE);
+        userRequestDto = new UserRequestDto("User 1", "user1@example.com", 30);
+    }
+
+    @Benchmark
+    public UserResponseDto entityToDto() {
+        return UserMapper.entityToDto(user);
+    }
+
+    @Benchmark
+    public List<UserResponseDto> entityToDtoList() {
+        return users.stream()
+                .map(UserMapper::entityToDto)
+                .toList();
+    }
+
+    @Benchmark
+    public UserEntity dtoToEntity() {
+        return UserMapper.dtoToEntity(userRequestDto);
+    }
+}
@@ -0,0 +1,86 @@
+package ru.aston.intensive.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.aston.intensive.dto.UserNameSuggestionDto;
+import ru.aston.intensive.service.UserNameIndex;
+import ru.aston.intensive.service.impl.SortedArrayUserNameIndex;
+import ru.aston.intensive.util.config.NameIndexProperty;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type-ahead latency of the name index filled with {@code users} names. Sample time mode
+ * reports the p99 of a single lookup, the setup prints the heap taken by the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class UserNameIndexBenchmark {
+
+    private static final String[] FIRST_NAMES = {"Alexander", "Anna", "Boris", "Daria", "Dmitry", "Elena",
+            "Ivan", "Maria", "Nikita", "Olga", "Pavel", "Sofia", "John", "Emma", "Oliver", "Mia"};
+    private static final int PREFIXES = 1024;
+
+    @Param({"1000000"})
+    private int users;
+
+    @Param({"10000"})
+    private int mergeThreshold;
+
+    private UserNameIndex userNameIndex;
+    private String[] prefixes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        NameIndexProperty nameIndexProperty = new NameIndexProperty();
+        nameIndexProperty.setMergeThreshold(mergeThreshold);
+        SplittableRandom random = new SplittableRandom(42);
+
+        long heapBefore = usedHeap();
+        userNameIndex = new SortedArrayUserNameIndex(null, nameIndexProperty);
+        for (long id = 1; id <= users; id++) {
+            userNameIndex.put(id, name(random));
+        }
+        long heapAfter = usedHeap();
+        System.out.printf("%nname index of %d users takes ~%d MB, %d bytes per user%n",
+                users, (heapAfter - heapBefore) >> 20, (heapAfter - heapBefore) / users);
+
+        prefixes = new String[PREFIXES];
+        for (int i = 0; i < PREFIXES; i++) {
+            String name = name(random);
+            prefixes[i] = name.substring(0, 1 + random.nextInt(Math.min(8, name.length())));
+        }
+    }
+
+    @Benchmark
+    public List<UserNameSuggestionDto> complete() {
+        return userNameIndex.complete(prefixes[next++ & (PREFIXES - 1)], 10);
+    }
+
+    /**
+     * Name of 12-20 characters like "Olga Qwmkdpel".
+     */
+    private static String name(SplittableRandom random) {
+        StringBuilder name = new StringBuilder(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]).append(' ')
+                .append((char) ('A' + random.nextInt(26)));
+        int lastNameLength = 5 + random.nextInt(5);
+        for (int i = 0; i < lastNameLength; i++) {
+            name.append((char) ('a' + random.nextInt(26)));
+        }
+        return name.toString();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -4,8 +4,16 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
 import ru.aston.intensive.enumerated.UserStatus;
 
+import java.util.UUID;
+
+/**
+ * @param eventId assigned once by the producer and kept on redelivery, {@code null} in the events
+ *                of older producers
+ */
 public record UserEvent(
 
+        UUID eventId,
+
         @NotNull(message = "Событие для пользователя не может быть пустым")
         UserStatus action,
 
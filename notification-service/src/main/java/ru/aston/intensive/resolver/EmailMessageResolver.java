@@ -1,10 +1,23 @@
 package ru.aston.intensive.resolver;
 
-import ru.aston.intensive.enumerated.UserStatus;
+import ru.aston.intensive.dto.UserEvent;
+
+import java.util.Locale;
 
 public interface EmailMessageResolver {
 
-    String resolveSubject(UserStatus status);
+    /**
+     * Renders the subject in the default locale, user events don't carry one yet.
+     */
+    String resolveSubject(UserEvent userEvent);
+
+    String resolveText(UserEvent userEvent);
+
+    /**
+     * Renders the subject from the templates of the locale, falling back to its language
+     * and then to the default locale.
+     */
+    String resolveSubject(UserEvent userEvent, Locale locale);
 
-    String resolveText(UserStatus status);
+    String resolveText(UserEvent userEvent, Locale locale);
 }
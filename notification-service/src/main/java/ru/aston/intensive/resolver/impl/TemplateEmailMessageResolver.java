@@ -0,0 +1,207 @@
+package ru.aston.intensive.resolver.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+import ru.aston.intensive.dto.UserEvent;
+import ru.aston.intensive.enumerated.UserStatus;
+import ru.aston.intensive.resolver.EmailMessageResolver;
+import ru.aston.intensive.util.config.EmailTemplateProperty;
+import ru.aston.intensive.util.template.MessageTemplate;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the emails from the {@code user-events_<locale>.properties} files of the template
+ * location, holding {@code <status>.subject} and {@code <status>.text} templates. The files are
+ * compiled on startup and on change, the compiled templates are swapped as a whole, so rendering
+ * never waits for a reload and a broken file keeps the previous templates.
+ */
+@Component
+@Log4j2
+public class TemplateEmailMessageResolver implements EmailMessageResolver, SmartLifecycle {
+
+    private static final String FILE_PREFIX = "user-events_";
+    private static final String FILE_SUFFIX = ".properties";
+
+    private final EmailTemplateProperty emailTemplateProperty;
+    private final ResourcePatternResolver resourceResolver = new PathMatchingResourcePatternResolver();
+    private final String filePattern;
+
+    private volatile Templates templates;
+    private ScheduledExecutorService reloader;
+
+    public TemplateEmailMessageResolver(EmailTemplateProperty emailTemplateProperty) {
+        this.emailTemplateProperty = emailTemplateProperty;
+        String location = emailTemplateProperty.getLocation();
+        this.filePattern = (location.endsWith("/") ? location : location + "/") + FILE_PREFIX + "*" + FILE_SUFFIX;
+        try {
+            this.templates = load(findTemplateFiles());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't load email templates " + filePattern, e);
+        }
+    }
+
+    @Override
+    public String resolveSubject(UserEvent userEvent) {
+        return templates.defaults().get(userEvent.action()).subject().render(userEvent);
+    }
+
+    @Override
+    public String resolveText(UserEvent userEvent) {
+        return templates.defaults().get(userEvent.action()).text().render(userEvent);
+    }
+
+    @Override
+    public String resolveSubject(UserEvent userEvent, Locale locale) {
+        return message(userEvent.action(), locale).subject().render(userEvent);
+    }
+
+    @Override
+    public String resolveText(UserEvent userEvent, Locale locale) {
+        return message(userEvent.action(), locale).text().render(userEvent);
+    }
+
+    /**
+     * Compiles the template files again if any of them was added, removed or modified.
+     */
+    public synchronized void reloadIfChanged() {
+        try {
+            Resource[] resources = findTemplateFiles();
+            if (fingerprint(resources).equals(templates.fingerprint())) {
+                return;
+            }
+            templates = load(resources);
+            log.info("Email templates reloaded from {}", filePattern);
+        } catch (IOException | RuntimeException e) {
+            log.error("Couldn't reload email templates {}, keeping the previous ones", filePattern, e);
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        Duration reloadInterval = emailTemplateProperty.getReloadInterval();
+        if (reloadInterval.isZero() || reloadInterval.isNegative()) {
+            return;
+        }
+        reloader = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofVirtual().name("email-templates-reload").factory());
+        reloader.scheduleWithFixedDelay(this::reloadIfChanged, reloadInterval.toMillis(),
+                reloadInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+            reloader = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return reloader != null;
+    }
+
+    private Message message(UserStatus status, Locale locale) {
+        Templates current = templates;
+        Message message = current.find(status, locale);
+        if (message == null) {
+            message = current.find(status, Locale.of(locale.getLanguage()));
+        }
+        if (message == null) {
+            message = current.defaults().get(status);
+        }
+        return message;
+    }
+
+    private Resource[] findTemplateFiles() throws IOException {
+        Resource[] resources = resourceResolver.getResources(filePattern);
+        Arrays.sort(resources, Comparator.comparing(Resource::getFilename));
+        return resources;
+    }
+
+    private Templates load(Resource[] resources) throws IOException {
+        Map<Locale, Map<UserStatus, Message>> messages = new HashMap<>();
+        for (Resource resource : resources) {
+            String filename = resource.getFilename();
+            Locale locale = Locale.forLanguageTag(filename
+                    .substring(FILE_PREFIX.length(), filename.length() - FILE_SUFFIX.length())
+                    .replace('_', '-'));
+            Properties properties = new Properties();
+            try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            messages.put(locale, compile(properties, filename));
+        }
+
+        Locale defaultLocale = emailTemplateProperty.getDefaultLocale();
+        Map<UserStatus, Message> defaults = messages.getOrDefault(defaultLocale, Map.of());
+        if (defaults.size() < UserStatus.values().length) {
+            throw new IllegalStateException("Email templates of the default locale " + defaultLocale
+                    + " must cover every user status, found " + defaults.keySet() + " in " + filePattern);
+        }
+        return new Templates(messages, defaults, fingerprint(resources));
+    }
+
+    private static Map<UserStatus, Message> compile(Properties properties, String filename) {
+        Map<UserStatus, Message> messages = new EnumMap<>(UserStatus.class);
+        for (UserStatus status : UserStatus.values()) {
+            String key = status.name().toLowerCase(Locale.ROOT);
+            String subject = properties.getProperty(key + ".subject");
+            String text = properties.getProperty(key + ".text");
+            if (subject == null || text == null) {
+                continue;
+            }
+            try {
+                messages.put(status, new Message(MessageTemplate.compile(subject), MessageTemplate.compile(text)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid email template " + key + " in " + filename, e);
+            }
+        }
+        return messages;
+    }
+
+    private static String fingerprint(Resource[] resources) throws IOException {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Resource resource : resources) {
+            fingerprint.append(resource.getFilename()).append(':')
+                    .append(resource.lastModified()).append(':')
+                    .append(resource.contentLength()).append(';');
+        }
+        return fingerprint.toString();
+    }
+
+    private record Message(MessageTemplate subject, MessageTemplate text) {
+    }
+
+    /**
+     * @param defaults messages of the default locale, there is one for every user status
+     */
+    private record Templates(Map<Locale, Map<UserStatus, Message>> messages, Map<UserStatus, Message> defaults,
+                             String fingerprint) {
+
+        Message find(UserStatus status, Locale locale) {
+            Map<UserStatus, Message> localeMessages = messages.get(locale);
+            return localeMessages == null ? null : localeMessages.get(status);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package ru.aston.intensive.service;
+
+import ru.aston.intensive.dto.UserEvent;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface EmailDispatcher {
+
+    /**
+     * Queues the notification of the user. The future completes once the email is sent or given
+     * up after the last attempt, and never completes for an email dropped on shutdown.
+     */
+    CompletableFuture<Void> dispatch(UserEvent userEvent);
+}
@@ -0,0 +1,30 @@
+package ru.aston.intensive.service;
+
+import java.util.UUID;
+
+/**
+ * Ids of the user events already processed within a time window, used to skip the events
+ * resent by the producer or redelivered by Kafka. An id is reserved while its event is queued,
+ * so a copy redelivered meanwhile is skipped too.
+ */
+public interface ProcessedEventStore {
+
+    boolean isProcessed(UUID eventId);
+
+    /**
+     * Reserves the id of an event about to be queued.
+     *
+     * @return {@code false} if the event is already processed or queued
+     */
+    boolean tryReserve(UUID eventId);
+
+    /**
+     * Marks the event processed and drops its reservation.
+     */
+    void markProcessed(UUID eventId);
+
+    /**
+     * Drops the reservation of an event that wasn't processed, so its redelivery is processed.
+     */
+    void release(UUID eventId);
+}
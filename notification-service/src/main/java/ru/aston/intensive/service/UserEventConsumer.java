@@ -1,9 +1,17 @@
 package ru.aston.intensive.service;
 
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.support.Acknowledgment;
 import ru.aston.intensive.dto.UserEvent;
-import ru.aston.intensive.enumerated.UserStatus;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface UserEventConsumer {
-    void consumeUserEvent(ConsumerRecord<UserStatus, UserEvent> record);
+
+    String LISTENER_ID = "userEvents";
+
+    void consumeUserEvents(List<ConsumerRecord<String, UserEvent>> records, Acknowledgment acknowledgment);
+
+    CompletableFuture<Void> consumeUserEvent(ConsumerRecord<String, UserEvent> record);
 }
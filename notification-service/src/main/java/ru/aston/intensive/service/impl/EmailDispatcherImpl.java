@@ -0,0 +1,196 @@
+package ru.aston.intensive.service.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.stereotype.Service;
+import ru.aston.intensive.dto.UserEvent;
+import ru.aston.intensive.service.EmailDispatcher;
+import ru.aston.intensive.service.EmailNotificationService;
+import ru.aston.intensive.service.UserEventConsumer;
+import ru.aston.intensive.util.config.KafkaProperty;
+import ru.aston.intensive.util.config.MailDispatchProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue of the emails to send, drained by virtual-thread senders, so a slow mail server no longer
+ * holds the Kafka consumer threads. The user event listener is paused while the queue is full and
+ * resumed once it drains to the resume threshold.
+ * <p>
+ * Starts before and stops after the listener containers.
+ */
+@Service
+@Log4j2
+public class EmailDispatcherImpl implements EmailDispatcher, SmartLifecycle {
+
+    private static final long POLL_TIMEOUT_MILLIS = 500;
+
+    private final EmailNotificationService emailNotificationService;
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+    private final MailDispatchProperty mailDispatchProperty;
+    private final BlockingQueue<Task> queue;
+    private final Object pauseLock = new Object();
+    private final List<Thread> senders = new ArrayList<>();
+    private volatile boolean paused;
+    private volatile boolean running;
+
+    public EmailDispatcherImpl(EmailNotificationService emailNotificationService,
+                               KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry,
+                               MailDispatchProperty mailDispatchProperty,
+                               KafkaProperty kafkaProperty) {
+        this.emailNotificationService = emailNotificationService;
+        this.kafkaListenerEndpointRegistry = kafkaListenerEndpointRegistry;
+        this.mailDispatchProperty = mailDispatchProperty;
+        // the polls made before the listener is paused still have to fit
+        KafkaProperty.Consumer consumer = kafkaProperty.getConsumer();
+        this.queue = new LinkedBlockingQueue<>(mailDispatchProperty.getQueueCapacity()
+                + consumer.getConcurrency() * consumer.getMaxPollRecords());
+    }
+
+    @Override
+    public CompletableFuture<Void> dispatch(UserEvent userEvent) {
+        Task task = new Task(userEvent, new CompletableFuture<>());
+        try {
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return task.delivered();
+        }
+        pauseIfFull();
+        return task.delivered();
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public synchronized void start() {
+        running = true;
+        for (int i = 0; i < mailDispatchProperty.getSenders(); i++) {
+            senders.add(Thread.ofVirtual().name("mail-sender-" + i).start(this::send));
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        long deadline = System.nanoTime() + mailDispatchProperty.getShutdownTimeout().toNanos();
+        for (Thread sender : senders) {
+            try {
+                if (!sender.join(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())))) {
+                    sender.interrupt();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        senders.clear();
+        if (!queue.isEmpty()) {
+            log.info("{} queued emails are left to be redelivered by Kafka", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE - 1;
+    }
+
+    private void send() {
+        while (running) {
+            Task task;
+            try {
+                task = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            resumeIfDrained();
+            // taken after stop, left to be redelivered by Kafka like the rest of the queue
+            if (task != null && running) {
+                deliver(task);
+            }
+        }
+    }
+
+    private void deliver(Task task) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                emailNotificationService.notifyUser(task.userEvent());
+                task.delivered().complete(null);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= mailDispatchProperty.getMaxAttempts()) {
+                    log.error("Couldn't send email to {} after {} attempts, giving up",
+                            task.userEvent().email(), attempt, e);
+                    task.delivered().complete(null);
+                    return;
+                }
+                log.warn("Couldn't send email to {}, attempt {}: {}", task.userEvent().email(), attempt,
+                        e.getMessage());
+            }
+
+            try {
+                Thread.sleep(mailDispatchProperty.getRetryBackoff());
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (!running) {
+                return;
+            }
+        }
+    }
+
+    private void pauseIfFull() {
+        if (paused || queue.size() < mailDispatchProperty.getQueueCapacity()) {
+            return;
+        }
+        synchronized (pauseLock) {
+            if (!paused && queue.size() >= mailDispatchProperty.getQueueCapacity()) {
+                paused = true;
+                MessageListenerContainer container = listenerContainer();
+                if (container != null) {
+                    container.pause();
+                }
+                log.info("Email queue is full, user events consumption paused");
+            }
+        }
+    }
+
+    private void resumeIfDrained() {
+        if (!paused || queue.size() > mailDispatchProperty.getResumeThreshold()) {
+            return;
+        }
+        synchronized (pauseLock) {
+            if (paused && queue.size() <= mailDispatchProperty.getResumeThreshold()) {
+                paused = false;
+                MessageListenerContainer container = listenerContainer();
+                if (container != null) {
+                    container.resume();
+                }
+                log.info("Email queue drained, user events consumption resumed");
+            }
+        }
+    }
+
+    private MessageListenerContainer listenerContainer() {
+        return kafkaListenerEndpointRegistry.getListenerContainer(UserEventConsumer.LISTENER_ID);
+    }
+
+    private record Task(UserEvent userEvent, CompletableFuture<Void> delivered) {
+    }
+}
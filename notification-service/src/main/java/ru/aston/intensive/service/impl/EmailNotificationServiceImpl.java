@@ -19,8 +19,8 @@ public class EmailNotificationServiceImpl implements EmailNotificationService {
     public void notifyUser(UserEvent userEvent) {
         SimpleMailMessage message = new SimpleMailMessage();
         message.setTo(userEvent.email());
-        message.setSubject(messageResolver.resolveSubject(userEvent.action()));
-        message.setText(messageResolver.resolveText(userEvent.action()));
+        message.setSubject(messageResolver.resolveSubject(userEvent));
+        message.setText(messageResolver.resolveText(userEvent));
 
         emailSender.send(message);
     }
@@ -0,0 +1,245 @@
+package ru.aston.intensive.service.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import ru.aston.intensive.service.ProcessedEventStore;
+import ru.aston.intensive.util.config.ProcessedEventProperty;
+import ru.aston.intensive.util.dedup.UuidHashSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ring of fixed-size {@link UuidHashSet} generations, each one taking the ids of
+ * window / generations. The oldest generation is emptied and reused when the newest one
+ * is full or its time is over, and dropped when it gets older than the window. Reserved ids
+ * of the queued events are kept aside until they are marked or released.
+ * <p>
+ * Loads the snapshot before and saves it after the listener containers and the email dispatcher,
+ * and every {@code processed-events.snapshot-interval} in between.
+ */
+@Service
+@Log4j2
+public class GenerationalProcessedEventStore implements ProcessedEventStore, SmartLifecycle {
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final ProcessedEventProperty processedEventProperty;
+    private final UuidHashSet[] generations;
+    /**
+     * Start time of each generation, 0 for the unused ones.
+     */
+    private final long[] startedAt;
+    private final long windowMillis;
+    private final long generationMillis;
+    private final Set<UUID> reserved = new HashSet<>();
+    private int current;
+    private volatile boolean running;
+    private ScheduledExecutorService snapshotWriter;
+
+    public GenerationalProcessedEventStore(ProcessedEventProperty processedEventProperty) {
+        this.processedEventProperty = processedEventProperty;
+        int generationCount = processedEventProperty.getGenerations();
+        int generationSize = Math.ceilDiv(processedEventProperty.getMaxEntries(), generationCount);
+        this.generations = new UuidHashSet[generationCount];
+        for (int i = 0; i < generationCount; i++) {
+            generations[i] = new UuidHashSet(generationSize);
+        }
+        this.startedAt = new long[generationCount];
+        this.windowMillis = processedEventProperty.getWindow().toMillis();
+        this.generationMillis = Math.max(1, windowMillis / generationCount);
+        startedAt[current] = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized boolean isProcessed(UUID eventId) {
+        expire(System.currentTimeMillis());
+        long msb = eventId.getMostSignificantBits();
+        long lsb = eventId.getLeastSignificantBits();
+        for (int i = 0; i < generations.length; i++) {
+            if (startedAt[i] != 0 && generations[i].contains(msb, lsb)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized boolean tryReserve(UUID eventId) {
+        return !isProcessed(eventId) && reserved.add(eventId);
+    }
+
+    @Override
+    public synchronized void markProcessed(UUID eventId) {
+        reserved.remove(eventId);
+        long now = System.currentTimeMillis();
+        expire(now);
+        if (generations[current].isFull()) {
+            log.warn("Processed events generation filled up in {} ms, the dedup window gets shorter",
+                    now - startedAt[current]);
+            advance(now);
+        }
+        generations[current].add(eventId.getMostSignificantBits(), eventId.getLeastSignificantBits());
+    }
+
+    @Override
+    public synchronized void release(UUID eventId) {
+        reserved.remove(eventId);
+    }
+
+    @Override
+    public synchronized void start() {
+        String snapshotFile = processedEventProperty.getSnapshotFile();
+        if (snapshotFile != null && !snapshotFile.isBlank()) {
+            load(Path.of(snapshotFile));
+        }
+        running = true;
+
+        Duration snapshotInterval = processedEventProperty.getSnapshotInterval();
+        if (snapshotFile == null || snapshotFile.isBlank()
+                || snapshotInterval.isZero() || snapshotInterval.isNegative()) {
+            return;
+        }
+        snapshotWriter = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofVirtual().name("processed-events-snapshot").factory());
+        snapshotWriter.scheduleWithFixedDelay(this::saveIfRunning, snapshotInterval.toMillis(),
+                snapshotInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (snapshotWriter != null) {
+            snapshotWriter.shutdown();
+            snapshotWriter = null;
+        }
+        String snapshotFile = processedEventProperty.getSnapshotFile();
+        if (snapshotFile != null && !snapshotFile.isBlank()) {
+            save(Path.of(snapshotFile));
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE - 2;
+    }
+
+    public synchronized int size() {
+        int size = 0;
+        for (UuidHashSet generation : generations) {
+            size += generation.size();
+        }
+        return size;
+    }
+
+    /**
+     * Periodic save, skipped once stopped as the shutdown save comes last.
+     */
+    private synchronized void saveIfRunning() {
+        if (running) {
+            save(Path.of(processedEventProperty.getSnapshotFile()));
+        }
+    }
+
+    private void expire(long now) {
+        if (now - startedAt[current] >= generationMillis) {
+            advance(now);
+        }
+        for (int i = 0; i < generations.length; i++) {
+            if (startedAt[i] != 0 && now - startedAt[i] >= windowMillis) {
+                generations[i].clear();
+                startedAt[i] = 0;
+            }
+        }
+    }
+
+    private void advance(long now) {
+        current = (current + 1) % generations.length;
+        generations[current].clear();
+        startedAt[current] = now;
+    }
+
+    /**
+     * Writes the generations oldest first to a temporary file, then moves it over the snapshot.
+     */
+    private void save(Path file) {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeInt(generations.length);
+                for (int i = 1; i <= generations.length; i++) {
+                    int generation = (current + i) % generations.length;
+                    out.writeLong(startedAt[generation]);
+                    generations[generation].writeTo(out);
+                }
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Saved {} processed event ids to {}", size(), file);
+        } catch (IOException e) {
+            log.warn("Couldn't save processed event ids to {}", file, e);
+        }
+    }
+
+    /**
+     * Replaces the generations with those of the snapshot still within the window.
+     */
+    private void load(Path file) {
+        long now = System.currentTimeMillis();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("Unknown processed event ids snapshot version in {}, ignored", file);
+                return;
+            }
+            for (UuidHashSet generation : generations) {
+                generation.clear();
+            }
+            Arrays.fill(startedAt, 0);
+
+            int savedGenerations = in.readInt();
+            for (int i = 0; i < savedGenerations; i++) {
+                long savedAt = in.readLong();
+                if (savedAt == 0 || now - savedAt >= windowMillis) {
+                    UuidHashSet.skip(in);
+                    continue;
+                }
+                advance(savedAt);
+                generations[current].readFrom(in);
+            }
+            if (startedAt[current] == 0) {
+                startedAt[current] = now;
+            }
+            log.info("Loaded {} processed event ids from {}", size(), file);
+        } catch (NoSuchFileException e) {
+            log.info("No processed event ids snapshot in {}", file);
+        } catch (IOException e) {
+            log.warn("Couldn't load processed event ids from {}", file, e);
+        }
+    }
+}
@@ -7,14 +7,17 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
 import ru.aston.intensive.dto.UserEvent;
-import ru.aston.intensive.enumerated.UserStatus;
-import ru.aston.intensive.service.EmailNotificationService;
+import ru.aston.intensive.service.EmailDispatcher;
+import ru.aston.intensive.service.ProcessedEventStore;
 import ru.aston.intensive.service.UserEventConsumer;
 import ru.aston.intensive.util.config.KafkaProperty;
 
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Log4j2
@@ -22,12 +25,44 @@ import java.util.Set;
 public class UserEventConsumerImpl implements UserEventConsumer {
 
     private final Validator validator;
-    private final EmailNotificationService emailService;
+    private final EmailDispatcher emailDispatcher;
+    private final ProcessedEventStore processedEventStore;
     private final KafkaProperty kafkaProperty;
 
+    /**
+     * Last batch of the consumer thread, batches are acknowledged in the order they are polled.
+     */
+    private final ThreadLocal<CompletableFuture<Void>> lastBatch =
+            ThreadLocal.withInitial(() -> CompletableFuture.completedFuture(null));
+
+    /**
+     * Queues the emails of one poll and returns without waiting for them. The batch is acknowledged
+     * once its emails and those of the previous batches are sent, so the committed offset never
+     * passes an email that wasn't sent. Invalid events are skipped.
+     */
+    @Override
+    @KafkaListener(id = LISTENER_ID, idIsGroup = false,
+            topics = "#{@kafkaProperty.topic}", groupId = "#{@kafkaProperty.consumerGroupId}")
+    public void consumeUserEvents(List<ConsumerRecord<String, UserEvent>> records,
+                                  Acknowledgment acknowledgment) {
+        log.debug("Received {} user events", records.size());
+
+        CompletableFuture<?>[] delivered = new CompletableFuture<?>[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            try {
+                delivered[i] = consumeUserEvent(records.get(i));
+            } catch (ConstraintViolationException e) {
+                delivered[i] = CompletableFuture.completedFuture(null);
+            }
+        }
+
+        lastBatch.set(lastBatch.get()
+                .thenCombine(CompletableFuture.allOf(delivered), (previous, batch) -> null)
+                .thenRun(() -> acknowledge(acknowledgment)));
+    }
+
     @Override
-    @KafkaListener(topics = "#{@kafkaProperty.topic}", groupId = "#{@kafkaProperty.consumerGroupId}")
-    public void consumeUserEvent(ConsumerRecord<UserStatus, UserEvent> record) {
+    public CompletableFuture<Void> consumeUserEvent(ConsumerRecord<String, UserEvent> record) {
         log.info(
                 "Received order: order={}, key={}, partition={}",
                 record.value(),
@@ -42,6 +77,29 @@ public class UserEventConsumerImpl implements UserEventConsumer {
             throw new ConstraintViolationException("Validation failed for UserEvent", violations);
         }
 
-        emailService.notifyUser(event);
+        if (event.eventId() == null) {
+            return emailDispatcher.dispatch(event);
+        }
+        if (!processedEventStore.tryReserve(event.eventId())) {
+            log.info("Skipped duplicate user event {}", event.eventId());
+            return CompletableFuture.completedFuture(null);
+        }
+        // marked once sent, an event that failed is released and delivered on redelivery
+        return emailDispatcher.dispatch(event)
+                .whenComplete((ignored, error) -> {
+                    if (error == null) {
+                        processedEventStore.markProcessed(event.eventId());
+                    } else {
+                        processedEventStore.release(event.eventId());
+                    }
+                });
+    }
+
+    private void acknowledge(Acknowledgment acknowledgment) {
+        try {
+            acknowledgment.acknowledge();
+        } catch (RuntimeException e) {
+            log.warn("Couldn't acknowledge user events, they will be redelivered", e);
+        }
     }
 }
@@ -0,0 +1,32 @@
+package ru.aston.intensive.util.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+
+@Component
+@ConfigurationProperties(prefix = "email-templates")
+@Getter
+@Setter
+public class EmailTemplateProperty {
+
+    /**
+     * Directory of the {@code user-events_<locale>.properties} template files, a {@code file:}
+     * location lets them be edited without a redeploy.
+     */
+    private String location = "classpath:/templates/email/";
+    /**
+     * Locale used when the event has none and when a locale has no template for the event.
+     * It must have the templates of every user status.
+     */
+    private Locale defaultLocale = Locale.forLanguageTag("ru");
+    /**
+     * How often the template files are checked for changes, zero disables the reload.
+     */
+    private Duration reloadInterval = Duration.ofSeconds(30);
+
+}
@@ -3,6 +3,7 @@ package ru.aston.intensive.util.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.CooperativeStickyAssignor;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -11,6 +12,7 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import ru.aston.intensive.dto.UserEvent;
 
@@ -33,6 +35,8 @@ public class KafkaConsumerConfig {
         propMap.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperty.getBootstrapServers());
         propMap.put(ConsumerConfig.GROUP_ID_CONFIG, kafkaProperty.getConsumerGroupId());
         propMap.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, kafkaProperty.getAutoOffset());
+        propMap.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, kafkaProperty.getConsumer().getMaxPollRecords());
+        propMap.put(ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, CooperativeStickyAssignor.class.getName());
 
         JsonDeserializer<UserEvent> jsonDeserializer =
                 new JsonDeserializer<>(UserEvent.class, objectMapper);
@@ -44,12 +48,18 @@ public class KafkaConsumerConfig {
         );
     }
 
+    /**
+     * Batch listener containers. The listener acknowledges a batch from the mail sender threads
+     * once its emails are sent, the container commits the acknowledged offsets on its next poll.
+     */
     @Bean
     public ConcurrentKafkaListenerContainerFactory<String, UserEvent> kafkaListenerContainerFactory(
             ConsumerFactory<String, UserEvent> consumerFactory
     ) {
         var containerFactory = new ConcurrentKafkaListenerContainerFactory<String, UserEvent>();
-        containerFactory.setConcurrency(1);
+        containerFactory.setConcurrency(kafkaProperty.getConsumer().getConcurrency());
+        containerFactory.setBatchListener(true);
+        containerFactory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
         containerFactory.setConsumerFactory(consumerFactory);
         return containerFactory;
     }
@@ -15,4 +15,20 @@ public class KafkaProperty {
     private String consumerGroupId;
     private String topic;
     private String autoOffset;
+    private Consumer consumer = new Consumer();
+
+    @Getter
+    @Setter
+    public static class Consumer {
+
+        /**
+         * Consumers per instance, one partition is read by one consumer at most.
+         */
+        private int concurrency = 1;
+        /**
+         * Upper bound of a batch, all of it has to be mailed within max.poll.interval.ms.
+         */
+        private int maxPollRecords = 100;
+
+    }
 }
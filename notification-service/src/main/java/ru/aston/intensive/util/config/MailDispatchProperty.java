@@ -0,0 +1,36 @@
+package ru.aston.intensive.util.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "mail-dispatch")
+@Getter
+@Setter
+public class MailDispatchProperty {
+
+    /**
+     * Queued emails at which the user event listener is paused. Records of the polls already
+     * made are still queued, so the queue can exceed it by concurrency * max-poll-records.
+     */
+    private int queueCapacity = 1000;
+    /**
+     * Queued emails at which the paused listener is resumed.
+     */
+    private int resumeThreshold = 500;
+    /**
+     * Virtual threads sending the queued emails, more of them than pooled SMTP sessions only wait.
+     */
+    private int senders = 4;
+    private int maxAttempts = 3;
+    private Duration retryBackoff = Duration.ofSeconds(1);
+    /**
+     * Time given on shutdown to the emails being sent, the queued ones are redelivered by Kafka.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+}
@@ -0,0 +1,37 @@
+package ru.aston.intensive.util.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "mail-pool")
+@Getter
+@Setter
+public class MailPoolProperty {
+
+    /**
+     * Open SMTP sessions at most, one per concurrent sender is enough.
+     */
+    private int maxConnections = 4;
+    /**
+     * Time to wait for a free session once all of them are busy.
+     */
+    private Duration maxWait = Duration.ofSeconds(10);
+    /**
+     * Idle sessions are closed after it, before the server drops them on its own timeout.
+     */
+    private Duration maxIdleTime = Duration.ofMinutes(1);
+    /**
+     * Period of the idle check, which also pings the idle sessions with NOOP.
+     */
+    private Duration evictionInterval = Duration.ofSeconds(30);
+    /**
+     * Servers limit the messages of one session, the session is reopened after that many.
+     */
+    private int maxMessagesPerConnection = 100;
+
+}
@@ -0,0 +1,38 @@
+package ru.aston.intensive.util.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "processed-events")
+@Getter
+@Setter
+public class ProcessedEventProperty {
+
+    /**
+     * How long the ids of the processed events are remembered. The window is cut into generations
+     * dropped as a whole, so an id is kept for at least window - window / generations.
+     */
+    private Duration window = Duration.ofHours(24);
+    private int generations = 4;
+    /**
+     * Ids remembered at most, memory is allocated up front for all of them (about 32 bytes an id).
+     * When a generation fills up before its time the window gets shorter.
+     */
+    private int maxEntries = 200_000;
+    /**
+     * File the ids are saved to periodically and on shutdown and loaded from on startup,
+     * not saved if empty.
+     */
+    private String snapshotFile;
+    /**
+     * How often the ids are saved while running, so a crash loses at most this much of them.
+     * Zero saves them on shutdown only.
+     */
+    private Duration snapshotInterval = Duration.ofMinutes(1);
+
+}
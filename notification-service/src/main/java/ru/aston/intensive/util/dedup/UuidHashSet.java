@@ -0,0 +1,126 @@
+package ru.aston.intensive.util.dedup;
+
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of UUIDs held in two {@code long[]}, 16 bytes a slot instead of a {@code UUID}
+ * and a map node per entry. Fixed size, insert-only and emptied as a whole by {@link #clear()}.
+ * The nil UUID marks free slots, so it is never contained.
+ * <p>
+ * Not thread-safe.
+ */
+public class UuidHashSet {
+
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private final long[] mostSigBits;
+    private final long[] leastSigBits;
+    private final int mask;
+    private final int maxSize;
+    private int size;
+
+    public UuidHashSet(int maxSize) {
+        if (maxSize <= 0 || maxSize > 1 << 29) {
+            throw new IllegalArgumentException("maxSize must be in (0, 2^29]: " + maxSize);
+        }
+        int capacity = Integer.highestOneBit((int) Math.ceil(maxSize / MAX_LOAD_FACTOR) - 1) << 1;
+        this.mostSigBits = new long[capacity];
+        this.leastSigBits = new long[capacity];
+        this.mask = capacity - 1;
+        this.maxSize = maxSize;
+    }
+
+    public boolean contains(long msb, long lsb) {
+        if (msb == 0 && lsb == 0) {
+            return false;
+        }
+        for (int i = index(msb, lsb); ; i = (i + 1) & mask) {
+            if (mostSigBits[i] == msb && leastSigBits[i] == lsb) {
+                return true;
+            }
+            if (mostSigBits[i] == 0 && leastSigBits[i] == 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return {@code false} if the UUID is already in the set
+     * @throws IllegalStateException if the set is full
+     */
+    public boolean add(long msb, long lsb) {
+        if (msb == 0 && lsb == 0) {
+            throw new IllegalArgumentException("nil UUID can't be added");
+        }
+        for (int i = index(msb, lsb); ; i = (i + 1) & mask) {
+            if (mostSigBits[i] == msb && leastSigBits[i] == lsb) {
+                return false;
+            }
+            if (mostSigBits[i] == 0 && leastSigBits[i] == 0) {
+                if (size == maxSize) {
+                    throw new IllegalStateException("set is full: " + maxSize);
+                }
+                mostSigBits[i] = msb;
+                leastSigBits[i] = lsb;
+                size++;
+                return true;
+            }
+        }
+    }
+
+    public boolean isFull() {
+        return size == maxSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(mostSigBits, 0);
+            Arrays.fill(leastSigBits, 0);
+            size = 0;
+        }
+    }
+
+    /**
+     * Writes the size followed by the UUIDs, in the format read by {@link #readFrom}.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < mostSigBits.length; i++) {
+            if (mostSigBits[i] != 0 || leastSigBits[i] != 0) {
+                out.writeLong(mostSigBits[i]);
+                out.writeLong(leastSigBits[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds the UUIDs written by {@link #writeTo}, those that don't fit are skipped.
+     */
+    public void readFrom(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            long msb = in.readLong();
+            long lsb = in.readLong();
+            if (!isFull()) {
+                add(msb, lsb);
+            }
+        }
+    }
+
+    public static void skip(DataInputStream in) throws IOException {
+        in.skipNBytes(in.readInt() * 16L);
+    }
+
+    private int index(long msb, long lsb) {
+        long hash = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        return (int) (hash ^ (hash >>> 33)) & mask;
+    }
+}
@@ -0,0 +1,203 @@
+package ru.aston.intensive.util.mail;
+
+import jakarta.mail.Address;
+import jakarta.mail.AuthenticationFailedException;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.log4j.Log4j2;
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.lang.Nullable;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import ru.aston.intensive.util.config.MailPoolProperty;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link JavaMailSenderImpl} keeping connected and authenticated SMTP sessions in a pool, so a
+ * message only costs the MAIL/RCPT/DATA exchange instead of a new connection, STARTTLS and AUTH.
+ * <p>
+ * Idle sessions are pinged with NOOP and closed after {@link MailPoolProperty#getMaxIdleTime()}.
+ * A session the server has closed anyway fails on the next message, which is then sent once more
+ * on a new session.
+ */
+@Log4j2
+public class PooledJavaMailSender extends JavaMailSenderImpl implements AutoCloseable {
+
+    private static final String HEADER_MESSAGE_ID = "Message-ID";
+
+    private final GenericObjectPool<PooledTransport> pool;
+    private final int maxMessagesPerConnection;
+
+    public PooledJavaMailSender(MailPoolProperty mailPoolProperty) {
+        GenericObjectPoolConfig<PooledTransport> poolConfig = new GenericObjectPoolConfig<>();
+        poolConfig.setMaxTotal(mailPoolProperty.getMaxConnections());
+        poolConfig.setMaxIdle(mailPoolProperty.getMaxConnections());
+        poolConfig.setMaxWait(mailPoolProperty.getMaxWait());
+        poolConfig.setMinEvictableIdleDuration(mailPoolProperty.getMaxIdleTime());
+        poolConfig.setTimeBetweenEvictionRuns(mailPoolProperty.getEvictionInterval());
+        poolConfig.setNumTestsPerEvictionRun(mailPoolProperty.getMaxConnections());
+        poolConfig.setTestWhileIdle(true);
+        poolConfig.setJmxEnabled(false);
+
+        this.pool = new GenericObjectPool<>(new TransportFactory(), poolConfig);
+        this.maxMessagesPerConnection = mailPoolProperty.getMaxMessagesPerConnection();
+    }
+
+    @Override
+    protected void doSend(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages) throws MailException {
+        Map<Object, Exception> failedMessages = new LinkedHashMap<>();
+        PooledTransport transport = null;
+        try {
+            for (int i = 0; i < mimeMessages.length; i++) {
+                Object original = originalMessages != null ? originalMessages[i] : mimeMessages[i];
+                try {
+                    prepare(mimeMessages[i]);
+                } catch (MessagingException e) {
+                    failedMessages.put(original, e);
+                    continue;
+                }
+
+                while (true) {
+                    if (transport == null) {
+                        transport = borrow(mimeMessages, originalMessages, i, failedMessages);
+                    }
+                    try {
+                        transport.send(mimeMessages[i]);
+                    } catch (SendFailedException e) {
+                        // rejected by the server, the session itself stays usable
+                        failedMessages.put(original, e);
+                    } catch (MessagingException e) {
+                        boolean reused = transport.sent > 0;
+                        invalidate(transport);
+                        transport = null;
+                        if (reused) {
+                            log.debug("SMTP session is broken, the message is sent on a new one", e);
+                            continue;
+                        }
+                        failedMessages.put(original, e);
+                    }
+                    break;
+                }
+
+                if (transport != null && transport.sent >= maxMessagesPerConnection) {
+                    invalidate(transport);
+                    transport = null;
+                }
+            }
+        } finally {
+            if (transport != null) {
+                pool.returnObject(transport);
+            }
+        }
+
+        if (!failedMessages.isEmpty()) {
+            throw new MailSendException(failedMessages);
+        }
+    }
+
+    public int getActiveConnections() {
+        return pool.getNumActive();
+    }
+
+    public int getIdleConnections() {
+        return pool.getNumIdle();
+    }
+
+    public long getCreatedConnections() {
+        return pool.getCreatedCount();
+    }
+
+    @Override
+    public void close() {
+        pool.close();
+    }
+
+    private PooledTransport borrow(MimeMessage[] mimeMessages, @Nullable Object[] originalMessages, int from,
+                                   Map<Object, Exception> failedMessages) {
+        try {
+            return pool.borrowObject();
+        } catch (AuthenticationFailedException e) {
+            throw new MailAuthenticationException(e);
+        } catch (Exception e) {
+            for (int i = from; i < mimeMessages.length; i++) {
+                failedMessages.put(originalMessages != null ? originalMessages[i] : mimeMessages[i], e);
+            }
+            throw new MailSendException("Mail server connection failed", e, failedMessages);
+        }
+    }
+
+    private void invalidate(PooledTransport transport) {
+        try {
+            pool.invalidateObject(transport);
+        } catch (Exception e) {
+            log.debug("Couldn't close SMTP session", e);
+        }
+    }
+
+    /**
+     * Same preparation as {@link JavaMailSenderImpl} does before sending.
+     */
+    private static void prepare(MimeMessage mimeMessage) throws MessagingException {
+        if (mimeMessage.getSentDate() == null) {
+            mimeMessage.setSentDate(new Date());
+        }
+        String messageId = mimeMessage.getMessageID();
+        mimeMessage.saveChanges();
+        if (messageId != null) {
+            mimeMessage.setHeader(HEADER_MESSAGE_ID, messageId);
+        }
+    }
+
+    private static final class PooledTransport {
+
+        private final Transport transport;
+        private int sent;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+
+        private void send(MimeMessage mimeMessage) throws MessagingException {
+            Address[] addresses = mimeMessage.getAllRecipients();
+            transport.sendMessage(mimeMessage, addresses != null ? addresses : new Address[0]);
+            sent++;
+        }
+    }
+
+    private final class TransportFactory extends BasePooledObjectFactory<PooledTransport> {
+
+        @Override
+        public PooledTransport create() throws MessagingException {
+            return new PooledTransport(connectTransport());
+        }
+
+        @Override
+        public PooledObject<PooledTransport> wrap(PooledTransport transport) {
+            return new DefaultPooledObject<>(transport);
+        }
+
+        /**
+         * {@link Transport#isConnected()} of SMTP sends NOOP, so a session closed by the server fails it.
+         */
+        @Override
+        public boolean validateObject(PooledObject<PooledTransport> pooledTransport) {
+            return pooledTransport.getObject().transport.isConnected();
+        }
+
+        @Override
+        public void destroyObject(PooledObject<PooledTransport> pooledTransport) throws MessagingException {
+            pooledTransport.getObject().transport.close();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package ru.aston.intensive.util.template;
+
+import ru.aston.intensive.dto.UserEvent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.StringConcatException;
+import java.lang.invoke.StringConcatFactory;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Template with {@code {{field}}} placeholders for the fields of the user event. It is compiled once
+ * into the string concatenation javac emits for {@code "..." + userEvent.email() + "..."}, so
+ * rendering sizes the text up front and copies the literals and field values straight into it,
+ * without parsing, buffers or intermediate strings.
+ */
+public final class MessageTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    private static final char ARGUMENT_TAG = '\u0001';
+    private static final char CONSTANT_TAG = '\u0002';
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    /**
+     * Accessors of the user event components by name.
+     */
+    private static final Map<String, MethodHandle> FIELDS = fields();
+
+    /**
+     * {@code (UserEvent) String}
+     */
+    private final MethodHandle renderer;
+
+    private MessageTemplate(MethodHandle renderer) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a placeholder is not closed or names an unknown field
+     */
+    public static MessageTemplate compile(String source) {
+        StringBuilder recipe = new StringBuilder();
+        List<Object> constants = new ArrayList<>();
+        List<MethodHandle> fields = new ArrayList<>();
+        int start = 0;
+        for (int open = source.indexOf(OPEN); open >= 0; open = source.indexOf(OPEN, start)) {
+            int close = source.indexOf(CLOSE, open + OPEN.length());
+            if (close < 0) {
+                throw new IllegalArgumentException("Placeholder at " + open + " is not closed: " + source);
+            }
+            String field = source.substring(open + OPEN.length(), close).strip();
+            MethodHandle accessor = FIELDS.get(field);
+            if (accessor == null) {
+                throw new IllegalArgumentException("Unknown template field: " + field);
+            }
+            addConstant(recipe, constants, source.substring(start, open));
+            recipe.append(ARGUMENT_TAG);
+            fields.add(accessor);
+            start = close + CLOSE.length();
+        }
+        addConstant(recipe, constants, source.substring(start));
+        return new MessageTemplate(link(recipe.toString(), constants, fields));
+    }
+
+    public String render(UserEvent userEvent) {
+        try {
+            return (String) renderer.invokeExact(userEvent);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void addConstant(StringBuilder recipe, List<Object> constants, String literal) {
+        if (!literal.isEmpty()) {
+            recipe.append(CONSTANT_TAG);
+            constants.add(literal);
+        }
+    }
+
+    /**
+     * Concatenation of the field values, each one read by its accessor from the same user event.
+     */
+    private static MethodHandle link(String recipe, List<Object> constants, List<MethodHandle> fields) {
+        Class<?>[] fieldTypes = fields.stream().map(field -> field.type().returnType()).toArray(Class<?>[]::new);
+        try {
+            MethodHandle concat = StringConcatFactory.makeConcatWithConstants(LOOKUP, "render",
+                    MethodType.methodType(String.class, fieldTypes), recipe, constants.toArray()).getTarget();
+            MethodHandle fromFields = MethodHandles.filterArguments(concat, 0, fields.toArray(MethodHandle[]::new));
+            return MethodHandles.permuteArguments(fromFields,
+                    MethodType.methodType(String.class, UserEvent.class), new int[fields.size()]);
+        } catch (StringConcatException e) {
+            throw new IllegalArgumentException("Template can't be compiled: " + e.getMessage(), e);
+        }
+    }
+
+    private static Map<String, MethodHandle> fields() {
+        Map<String, MethodHandle> fields = new HashMap<>();
+        for (RecordComponent component : UserEvent.class.getRecordComponents()) {
+            try {
+                fields.put(component.getName(), LOOKUP.unreflect(component.getAccessor()));
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return fields;
+    }
+}
@@ -0,0 +1,87 @@
+package ru.aston.intensive.benchmark;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetup;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import ru.aston.intensive.util.config.MailPoolProperty;
+import ru.aston.intensive.util.mail.PooledJavaMailSender;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Messages per second sent one by one, as the user event consumer does, with a new SMTP session
+ * per message and with pooled sessions. GreenMail stands in for the mail server, over plain SMTP
+ * and over TLS. Run with {@code -Dbenchmark=true}.
+ */
+@Log4j2
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MailThroughputTest {
+
+    private static final int WARMUP_MESSAGES = 100;
+    private static final int MESSAGES = 500;
+    private static final ServerSetup[] SERVER_SETUPS = {ServerSetupTest.SMTP, ServerSetupTest.SMTPS};
+
+    @RegisterExtension
+    private static GreenMailExtension greenMail = new GreenMailExtension(SERVER_SETUPS)
+            .withConfiguration(GreenMailConfiguration.aConfig()
+                    .withUser("test@example.com", "username", "password"));
+
+    @Test
+    void compare_newSessionAndPooledSessions() throws Exception {
+        for (ServerSetup serverSetup : SERVER_SETUPS) {
+            JavaMailSenderImpl sessionPerMessage = configure(new JavaMailSenderImpl(), serverSetup);
+            try (PooledJavaMailSender pooled = configure(new PooledJavaMailSender(new MailPoolProperty()),
+                    serverSetup)) {
+                log.info("{}: new session per message {} msg/s, pooled sessions {} msg/s",
+                        serverSetup.getProtocol(),
+                        String.format("%.0f", throughput(sessionPerMessage)),
+                        String.format("%.0f", throughput(pooled)));
+            }
+        }
+    }
+
+    private double throughput(JavaMailSenderImpl mailSender) throws Exception {
+        send(mailSender, WARMUP_MESSAGES);
+        greenMail.purgeEmailFromAllMailboxes();
+
+        long start = System.nanoTime();
+        send(mailSender, MESSAGES);
+        double throughput = MESSAGES * 1_000_000_000.0 / (System.nanoTime() - start);
+
+        assertTrue(greenMail.waitForIncomingEmail(10_000, MESSAGES));
+        greenMail.purgeEmailFromAllMailboxes();
+        return throughput;
+    }
+
+    private static void send(JavaMailSenderImpl mailSender, int messages) {
+        for (int i = 0; i < messages; i++) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo("user" + i + "@example.com");
+            message.setSubject("Создание пользователя");
+            message.setText("Здравствуйте! Ваш аккаунт на сайте 'user-service' был успешно создан");
+            mailSender.send(message);
+        }
+    }
+
+    private static <T extends JavaMailSenderImpl> T configure(T mailSender, ServerSetup serverSetup) {
+        mailSender.setProtocol(serverSetup.getProtocol());
+        mailSender.setHost("localhost");
+        mailSender.setPort(serverSetup.getPort());
+        mailSender.setUsername("username");
+        mailSender.setPassword("password");
+        Properties javaMailProperties = new Properties();
+        javaMailProperties.put("mail." + serverSetup.getProtocol() + ".auth", "true");
+        javaMailProperties.put("mail." + serverSetup.getProtocol() + ".ssl.trust", "*");
+        mailSender.setJavaMailProperties(javaMailProperties);
+        return mailSender;
+    }
+}
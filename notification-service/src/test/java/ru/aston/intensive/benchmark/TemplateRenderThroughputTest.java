@@ -0,0 +1,63 @@
+package ru.aston.intensive.benchmark;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import ru.aston.intensive.dto.UserEvent;
+import ru.aston.intensive.enumerated.UserStatus;
+import ru.aston.intensive.resolver.EmailMessageResolver;
+import ru.aston.intensive.resolver.impl.TemplateEmailMessageResolver;
+import ru.aston.intensive.util.config.EmailTemplateProperty;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Email texts rendered per second from the compiled templates and built by string concatenation,
+ * the way a hard-coded text with the user fields would be. Run with {@code -Dbenchmark=true}.
+ */
+@Log4j2
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TemplateRenderThroughputTest {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int RENDERS = 2_000_000;
+    private static final int EVENTS = 1024;
+
+    @Test
+    void compare_concatenationAndCompiledTemplates() {
+        EmailTemplateProperty emailTemplateProperty = new EmailTemplateProperty();
+        emailTemplateProperty.setReloadInterval(Duration.ZERO);
+        EmailMessageResolver resolver = new TemplateEmailMessageResolver(emailTemplateProperty);
+        UserEvent[] events = new UserEvent[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "user" + i + "@example.com");
+        }
+        Function<UserEvent, String> concatenation = userEvent -> "Здравствуйте! Ваш аккаунт " + userEvent.email()
+                + " на сайте 'user-service' был успешно создан";
+        assertEquals(concatenation.apply(events[0]), resolver.resolveText(events[0]));
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            throughput(concatenation, events);
+            throughput(resolver::resolveText, events);
+        }
+        log.info("concatenation {} renders/s, compiled templates {} renders/s",
+                String.format("%.0f", throughput(concatenation, events)),
+                String.format("%.0f", throughput(resolver::resolveText, events)));
+    }
+
+    private static double throughput(Function<UserEvent, String> render, UserEvent[] events) {
+        long length = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < RENDERS; i++) {
+            length += render.apply(events[i & (EVENTS - 1)]).length();
+        }
+        double throughput = RENDERS * 1_000_000_000.0 / (System.nanoTime() - start);
+        assertTrue(length > 0);
+        return throughput;
+    }
+}
@@ -15,6 +15,8 @@ import ru.aston.intensive.dto.UserEvent;
 import ru.aston.intensive.enumerated.UserStatus;
 import ru.aston.intensive.service.EmailNotificationService;
 
+import java.util.UUID;
+
 import static org.hamcrest.Matchers.matchesPattern;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
@@ -46,7 +48,7 @@ class EmailNotificationControllerTest {
     @Test
     void sentEmail_whenOk() throws Exception {
 
-        UserEvent requestEvent = new UserEvent(UserStatus.CREATED, "test@test.ru");
+        UserEvent requestEvent = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "test@test.ru");
 
         BDDMockito.willDoNothing().given(notificationService).notifyUser(any(UserEvent.class));
 
@@ -58,7 +60,7 @@ class EmailNotificationControllerTest {
 
     @Test
     void sentEmail_invalidUserEvent_status400BadRequestAndErrors() throws Exception {
-        UserEvent invalidEvent = new UserEvent(null, "invalidEmail");
+        UserEvent invalidEvent = new UserEvent(UUID.randomUUID(), null, "invalidEmail");
 
         mockMvc.perform(post(URI)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -72,7 +74,7 @@ class EmailNotificationControllerTest {
 
     @Test
     void sentEmail_whenServiceThrowMailException_status418() throws Exception {
-        UserEvent invalidEvent = new UserEvent(UserStatus.DELETED, "any@email.com");
+        UserEvent invalidEvent = new UserEvent(UUID.randomUUID(), UserStatus.DELETED, "any@email.com");
 
         BDDMockito.willThrow(new MailSendException("MailException"))
                 .given(notificationService).notifyUser(any(UserEvent.class));
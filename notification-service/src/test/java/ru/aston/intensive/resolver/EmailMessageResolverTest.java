@@ -0,0 +1,109 @@
+package ru.aston.intensive.resolver;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.aston.intensive.dto.UserEvent;
+import ru.aston.intensive.enumerated.UserStatus;
+import ru.aston.intensive.resolver.impl.TemplateEmailMessageResolver;
+import ru.aston.intensive.util.config.EmailTemplateProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EmailMessageResolverTest {
+
+    private static final UserEvent CREATED = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "user@example.com");
+    private static final UserEvent DELETED = new UserEvent(UUID.randomUUID(), UserStatus.DELETED, "user@example.com");
+
+    @TempDir
+    private Path tempDir;
+
+    private EmailTemplateProperty emailTemplateProperty;
+
+    @BeforeEach
+    void setUp() {
+        emailTemplateProperty = new EmailTemplateProperty();
+        emailTemplateProperty.setReloadInterval(Duration.ZERO);
+    }
+
+    @Test
+    void resolve_whenBundledTemplates_eventFieldsRendered() {
+        EmailMessageResolver resolver = new TemplateEmailMessageResolver(emailTemplateProperty);
+
+        assertEquals("Создание пользователя", resolver.resolveSubject(CREATED));
+        assertEquals("Здравствуйте! Ваш аккаунт user@example.com на сайте 'user-service' был успешно создан",
+                resolver.resolveText(CREATED));
+        assertEquals("Account deleted", resolver.resolveSubject(DELETED, Locale.ENGLISH));
+    }
+
+    @Test
+    void resolve_whenLocaleHasNoTemplate_fallsBack() throws Exception {
+        writeTemplates("ru", "created.subject=Создание\ncreated.text=Создан {{email}}\n"
+                + "deleted.subject=Удаление\ndeleted.text=Удалён {{email}}\n");
+        writeTemplates("en", "created.subject=Created\ncreated.text=Created {{email}}\n");
+        EmailMessageResolver resolver = new TemplateEmailMessageResolver(emailTemplateProperty);
+
+        assertEquals("Created", resolver.resolveSubject(CREATED, Locale.US));
+        assertEquals("Удаление", resolver.resolveSubject(DELETED, Locale.US));
+        assertEquals("Создание", resolver.resolveSubject(CREATED, Locale.GERMAN));
+    }
+
+    @Test
+    void constructor_whenDefaultLocaleIncomplete_throwIllegalStateException() throws Exception {
+        writeTemplates("ru", "created.subject=Создание\ncreated.text=Создан {{email}}\n");
+
+        assertThrows(IllegalStateException.class, () -> new TemplateEmailMessageResolver(emailTemplateProperty));
+    }
+
+    @Test
+    void constructor_whenUnknownField_throwIllegalStateException() throws Exception {
+        writeTemplates("ru", "created.subject=Создание\ncreated.text=Создан {{name}}\n"
+                + "deleted.subject=Удаление\ndeleted.text=Удалён {{email}}\n");
+
+        assertThrows(IllegalStateException.class, () -> new TemplateEmailMessageResolver(emailTemplateProperty));
+    }
+
+    @Test
+    void reloadIfChanged_whenFileModified_newTemplatesUsed() throws Exception {
+        Path file = writeTemplates("ru", "created.subject=Создание\ncreated.text=Создан {{email}}\n"
+                + "deleted.subject=Удаление\ndeleted.text=Удалён {{email}}\n");
+        TemplateEmailMessageResolver resolver = new TemplateEmailMessageResolver(emailTemplateProperty);
+
+        Files.writeString(file, "created.subject=Новый пользователь\ncreated.text=Создан {{email}}, {{eventId}}\n"
+                + "deleted.subject=Удаление\ndeleted.text=Удалён {{email}}\n", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(10)));
+        resolver.reloadIfChanged();
+
+        assertEquals("Новый пользователь", resolver.resolveSubject(CREATED));
+        assertEquals("Создан user@example.com, " + CREATED.eventId(), resolver.resolveText(CREATED));
+    }
+
+    @Test
+    void reloadIfChanged_whenFileBroken_previousTemplatesKept() throws Exception {
+        Path file = writeTemplates("ru", "created.subject=Создание\ncreated.text=Создан {{email}}\n"
+                + "deleted.subject=Удаление\ndeleted.text=Удалён {{email}}\n");
+        TemplateEmailMessageResolver resolver = new TemplateEmailMessageResolver(emailTemplateProperty);
+
+        Files.writeString(file, "created.subject=Создание\ncreated.text=Создан {{email\n", StandardCharsets.UTF_8);
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(10)));
+        resolver.reloadIfChanged();
+
+        assertEquals("Удалён user@example.com", resolver.resolveText(DELETED));
+    }
+
+    private Path writeTemplates(String locale, String templates) throws Exception {
+        emailTemplateProperty.setLocation("file:" + tempDir + "/");
+        return Files.writeString(tempDir.resolve("user-events_" + locale + ".properties"), templates,
+                StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,152 @@
+package ru.aston.intensive.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.mail.MailSendException;
+import ru.aston.intensive.dto.UserEvent;
+import ru.aston.intensive.enumerated.UserStatus;
+import ru.aston.intensive.service.impl.EmailDispatcherImpl;
+import ru.aston.intensive.util.config.KafkaProperty;
+import ru.aston.intensive.util.config.MailDispatchProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class EmailDispatcherTest {
+
+    private static final UserEvent USER_EVENT = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "created@email.com");
+
+    @Mock
+    private EmailNotificationService emailNotificationService;
+
+    @Mock
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Mock
+    private MessageListenerContainer listenerContainer;
+
+    private MailDispatchProperty mailDispatchProperty;
+    private EmailDispatcherImpl emailDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        mailDispatchProperty = new MailDispatchProperty();
+        mailDispatchProperty.setSenders(1);
+        mailDispatchProperty.setRetryBackoff(Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    void tearDown() {
+        emailDispatcher.stop();
+    }
+
+    @Test
+    void dispatch_whenSent_delivered() {
+        startDispatcher();
+
+        emailDispatcher.dispatch(USER_EVENT).orTimeout(5, TimeUnit.SECONDS).join();
+
+        verify(emailNotificationService).notifyUser(USER_EVENT);
+    }
+
+    @Test
+    void dispatch_whenSendFailsOnce_retriedAndDelivered() {
+        BDDMockito.willThrow(new MailSendException("connection refused"))
+                .willDoNothing()
+                .given(emailNotificationService).notifyUser(USER_EVENT);
+        startDispatcher();
+
+        emailDispatcher.dispatch(USER_EVENT).orTimeout(5, TimeUnit.SECONDS).join();
+
+        verify(emailNotificationService, times(2)).notifyUser(USER_EVENT);
+    }
+
+    @Test
+    void dispatch_whenEveryAttemptFails_givenUpAfterMaxAttempts() {
+        BDDMockito.willThrow(new MailSendException("connection refused"))
+                .given(emailNotificationService).notifyUser(USER_EVENT);
+        startDispatcher();
+
+        emailDispatcher.dispatch(USER_EVENT).orTimeout(5, TimeUnit.SECONDS).join();
+
+        verify(emailNotificationService, times(mailDispatchProperty.getMaxAttempts())).notifyUser(USER_EVENT);
+    }
+
+    @Test
+    void dispatch_whenQueueIsFull_listenerPausedUntilDrained() throws Exception {
+        mailDispatchProperty.setQueueCapacity(4);
+        mailDispatchProperty.setResumeThreshold(1);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch mailServerUp = new CountDownLatch(1);
+        BDDMockito.willAnswer(invocation -> {
+            sending.countDown();
+            return mailServerUp.await(5, TimeUnit.SECONDS);
+        }).given(emailNotificationService).notifyUser(any(UserEvent.class));
+        BDDMockito.given(kafkaListenerEndpointRegistry.getListenerContainer(UserEventConsumer.LISTENER_ID))
+                .willReturn(listenerContainer);
+        startDispatcher();
+
+        List<CompletableFuture<Void>> delivered = new ArrayList<>();
+        delivered.add(emailDispatcher.dispatch(USER_EVENT));
+        sending.await(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 3; i++) {
+            delivered.add(emailDispatcher.dispatch(USER_EVENT));
+        }
+        verify(listenerContainer, never()).pause();
+        delivered.add(emailDispatcher.dispatch(USER_EVENT));
+
+        verify(listenerContainer).pause();
+        verify(listenerContainer, never()).resume();
+
+        mailServerUp.countDown();
+        CompletableFuture.allOf(delivered.toArray(CompletableFuture[]::new)).orTimeout(5, TimeUnit.SECONDS).join();
+
+        verify(listenerContainer, timeout(5000)).resume();
+    }
+
+    @Test
+    void stop_whenEmailsQueued_notDelivered() throws Exception {
+        mailDispatchProperty.setShutdownTimeout(Duration.ofMillis(100));
+        CountDownLatch sending = new CountDownLatch(1);
+        BDDMockito.willAnswer(invocation -> {
+            sending.countDown();
+            return null;
+        }).given(emailNotificationService).notifyUser(any(UserEvent.class));
+        startDispatcher();
+
+        emailDispatcher.dispatch(USER_EVENT);
+        sending.await(5, TimeUnit.SECONDS);
+        emailDispatcher.stop();
+        CompletableFuture<Void> queued = emailDispatcher.dispatch(USER_EVENT);
+        Thread.sleep(100);
+
+        assertFalse(queued.isDone());
+    }
+
+    private void startDispatcher() {
+        KafkaProperty kafkaProperty = new KafkaProperty();
+        emailDispatcher = new EmailDispatcherImpl(emailNotificationService, kafkaListenerEndpointRegistry,
+                mailDispatchProperty, kafkaProperty);
+        emailDispatcher.start();
+    }
+}
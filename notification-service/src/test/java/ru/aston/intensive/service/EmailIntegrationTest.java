@@ -19,6 +19,8 @@ import ru.aston.intensive.enumerated.UserStatus;
 import ru.aston.intensive.resolver.EmailMessageResolver;
 import ru.aston.intensive.service.impl.EmailNotificationServiceImpl;
 
+import java.util.UUID;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.BDDMockito.given;
 
@@ -53,11 +55,11 @@ public class EmailIntegrationTest {
 
     @Test
     void notifyUser_whenCorrectRecipient_message() throws Exception {
-        UserEvent userEvent = new UserEvent(UserStatus.CREATED, "recipient@example.com");
+        UserEvent userEvent = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "recipient@example.com");
         String expectedBody = "Пользователь успешно создан";
 
-        given(messageResolver.resolveSubject(UserStatus.CREATED)).willReturn("Создание пользователя");
-        given(messageResolver.resolveText(UserStatus.CREATED)).willReturn("Пользователь успешно создан");
+        given(messageResolver.resolveSubject(userEvent)).willReturn("Создание пользователя");
+        given(messageResolver.resolveText(userEvent)).willReturn("Пользователь успешно создан");
 
         emailService.notifyUser(userEvent);
 
@@ -72,7 +74,7 @@ public class EmailIntegrationTest {
 
     @Test
     void notifyUser_whenIncorrectRecipient_throwMailException() throws Exception {
-        UserEvent userEvent = new UserEvent(UserStatus.CREATED, "example.com");
+        UserEvent userEvent = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "example.com");
 
         assertThrows(MailException.class, () -> emailService.notifyUser(userEvent));
         assertFalse(greenMail.waitForIncomingEmail(5000, 1));
@@ -15,6 +15,8 @@ import ru.aston.intensive.enumerated.UserStatus;
 import ru.aston.intensive.resolver.EmailMessageResolver;
 import ru.aston.intensive.service.impl.EmailNotificationServiceImpl;
 
+import java.util.UUID;
+
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.Mockito.verify;
 
@@ -35,15 +37,15 @@ class EmailNotificationServiceTest {
     public void notifyUser_whenOk() {
         String expectedSubject = "expected subject";
         String expectedText = "expected text";
-        UserEvent userEvent = new UserEvent(UserStatus.CREATED, "test@example.com");
+        UserEvent userEvent = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "test@example.com");
 
-        BDDMockito.given(messageResolver.resolveSubject(userEvent.action())).willReturn(expectedSubject);
-        BDDMockito.given(messageResolver.resolveText(userEvent.action())).willReturn(expectedText);
+        BDDMockito.given(messageResolver.resolveSubject(userEvent)).willReturn(expectedSubject);
+        BDDMockito.given(messageResolver.resolveText(userEvent)).willReturn(expectedText);
 
         notificationService.notifyUser(userEvent);
 
-        verify(messageResolver).resolveSubject(userEvent.action());
-        verify(messageResolver).resolveText(userEvent.action());
+        verify(messageResolver).resolveSubject(userEvent);
+        verify(messageResolver).resolveText(userEvent);
 
         ArgumentCaptor<SimpleMailMessage> messageCaptor = ArgumentCaptor.forClass(SimpleMailMessage.class);
         verify(emailSender).send(messageCaptor.capture());
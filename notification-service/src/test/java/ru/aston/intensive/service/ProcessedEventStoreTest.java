@@ -0,0 +1,148 @@
+package ru.aston.intensive.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.aston.intensive.service.impl.GenerationalProcessedEventStore;
+import ru.aston.intensive.util.config.ProcessedEventProperty;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcessedEventStoreTest {
+
+    @TempDir
+    private Path tempDir;
+
+    private ProcessedEventProperty processedEventProperty;
+
+    @BeforeEach
+    void setUp() {
+        processedEventProperty = new ProcessedEventProperty();
+        processedEventProperty.setMaxEntries(1000);
+    }
+
+    @Test
+    void isProcessed_whenMarked_true() {
+        GenerationalProcessedEventStore store = new GenerationalProcessedEventStore(processedEventProperty);
+        UUID eventId = UUID.randomUUID();
+
+        store.markProcessed(eventId);
+
+        assertTrue(store.isProcessed(eventId));
+        assertFalse(store.isProcessed(UUID.randomUUID()));
+    }
+
+    @Test
+    void tryReserve_whenQueuedOrProcessed_false() {
+        GenerationalProcessedEventStore store = new GenerationalProcessedEventStore(processedEventProperty);
+        UUID queued = UUID.randomUUID();
+        UUID processed = UUID.randomUUID();
+
+        assertTrue(store.tryReserve(queued));
+        assertTrue(store.tryReserve(processed));
+        store.markProcessed(processed);
+
+        assertFalse(store.tryReserve(queued));
+        assertFalse(store.tryReserve(processed));
+    }
+
+    @Test
+    void tryReserve_whenReleased_true() {
+        GenerationalProcessedEventStore store = new GenerationalProcessedEventStore(processedEventProperty);
+        UUID eventId = UUID.randomUUID();
+        store.tryReserve(eventId);
+
+        store.release(eventId);
+
+        assertFalse(store.isProcessed(eventId));
+        assertTrue(store.tryReserve(eventId));
+    }
+
+    @Test
+    void isProcessed_whenWindowPassed_false() throws Exception {
+        processedEventProperty.setWindow(Duration.ofMillis(200));
+        processedEventProperty.setGenerations(2);
+        GenerationalProcessedEventStore store = new GenerationalProcessedEventStore(processedEventProperty);
+        UUID eventId = UUID.randomUUID();
+
+        store.markProcessed(eventId);
+        Thread.sleep(250);
+
+        assertFalse(store.isProcessed(eventId));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void markProcessed_whenMaxEntriesReached_oldestForgotten() {
+        processedEventProperty.setMaxEntries(4);
+        processedEventProperty.setGenerations(2);
+        GenerationalProcessedEventStore store = new GenerationalProcessedEventStore(processedEventProperty);
+        List<UUID> eventIds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            eventIds.add(UUID.randomUUID());
+            store.markProcessed(eventIds.get(i));
+        }
+
+        assertEquals(4, store.size());
+        assertFalse(store.isProcessed(eventIds.get(0)));
+        assertFalse(store.isProcessed(eventIds.get(1)));
+        assertTrue(store.isProcessed(eventIds.get(2)));
+        assertTrue(store.isProcessed(eventIds.get(5)));
+    }
+
+    @Test
+    void start_whenSnapshotSaved_processedEventsRestored() {
+        processedEventProperty.setSnapshotFile(tempDir.resolve("processed-events.bin").toString());
+        GenerationalProcessedEventStore store = new GenerationalProcessedEventStore(processedEventProperty);
+        store.start();
+        UUID eventId = UUID.randomUUID();
+        store.markProcessed(eventId);
+        store.stop();
+
+        GenerationalProcessedEventStore restarted = new GenerationalProcessedEventStore(processedEventProperty);
+        restarted.start();
+
+        assertTrue(restarted.isProcessed(eventId));
+        assertEquals(1, restarted.size());
+    }
+
+    @Test
+    void start_whenSnapshotIntervalPassed_savedWhileRunning() throws Exception {
+        Path snapshotFile = tempDir.resolve("processed-events.bin");
+        processedEventProperty.setSnapshotFile(snapshotFile.toString());
+        processedEventProperty.setSnapshotInterval(Duration.ofMillis(50));
+        GenerationalProcessedEventStore store = new GenerationalProcessedEventStore(processedEventProperty);
+        store.start();
+        UUID eventId = UUID.randomUUID();
+        store.markProcessed(eventId);
+        Thread.sleep(300);
+
+        GenerationalProcessedEventStore restarted = new GenerationalProcessedEventStore(processedEventProperty);
+        restarted.start();
+        store.stop();
+        restarted.stop();
+
+        assertTrue(Files.exists(snapshotFile));
+        assertTrue(restarted.isProcessed(eventId));
+    }
+
+    @Test
+    void start_whenNoSnapshot_empty() {
+        processedEventProperty.setSnapshotFile(tempDir.resolve("missing/processed-events.bin").toString());
+        GenerationalProcessedEventStore store = new GenerationalProcessedEventStore(processedEventProperty);
+
+        store.start();
+
+        assertTrue(store.isRunning());
+        assertEquals(0, store.size());
+    }
+}
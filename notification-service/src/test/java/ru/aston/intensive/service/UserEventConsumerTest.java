@@ -3,11 +3,14 @@ package ru.aston.intensive.service;
 import jakarta.validation.ConstraintViolationException;
 import jakarta.validation.Validator;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.BDDMockito;
+import org.mockito.InOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -16,15 +19,23 @@ import ru.aston.intensive.enumerated.UserStatus;
 import ru.aston.intensive.service.impl.UserEventConsumerImpl;
 import ru.aston.intensive.util.config.KafkaProperty;
 
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @SpringBootTest(
         classes = {
                 ValidationAutoConfiguration.class,
-                EmailNotificationService.class,
+                EmailDispatcher.class,
                 UserEventConsumerImpl.class
         }
 )
@@ -43,35 +54,160 @@ class UserEventConsumerTest {
     private Validator validator;
 
     @MockitoBean
-    private EmailNotificationService emailService;
+    private EmailDispatcher emailDispatcher;
+
+    @MockitoBean
+    private ProcessedEventStore processedEventStore;
 
     @Autowired
     private UserEventConsumerImpl userEventConsumer;
 
+    @BeforeEach
+    void setUp() {
+        BDDMockito.given(processedEventStore.tryReserve(any(UUID.class))).willReturn(true);
+    }
 
     @Test
     public void consumeUserEvent_whenOk() {
-        UserEvent userEvent = new UserEvent(UserStatus.CREATED, "created@email.com");
-        ConsumerRecord<UserStatus, UserEvent> record
-                = new ConsumerRecord<>("topic", 0, 0L, userEvent.action(), userEvent);
+        UserEvent userEvent = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "created@email.com");
+        ConsumerRecord<String, UserEvent> record
+                = new ConsumerRecord<>("topic", 0, 0L, userEvent.email(), userEvent);
 
-        BDDMockito.willDoNothing().given(emailService).notifyUser(any(UserEvent.class));
+        BDDMockito.given(emailDispatcher.dispatch(any(UserEvent.class)))
+                .willReturn(CompletableFuture.completedFuture(null));
 
         userEventConsumer.consumeUserEvent(record);
 
-        verify(emailService).notifyUser(any(UserEvent.class));
+        verify(emailDispatcher).dispatch(any(UserEvent.class));
     }
 
     @Test
     public void consumeUserEvent_whenInvalidUserEvent_throwConstraintViolationException() {
-        UserEvent userEvent = new UserEvent(UserStatus.CREATED, "wrongemail.com");
-        ConsumerRecord<UserStatus, UserEvent> record
-                = new ConsumerRecord<>("topic", 0, 0L, userEvent.action(), userEvent);
-
-        BDDMockito.willDoNothing().given(emailService).notifyUser(any(UserEvent.class));
+        UserEvent userEvent = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "wrongemail.com");
+        ConsumerRecord<String, UserEvent> record
+                = new ConsumerRecord<>("topic", 0, 0L, userEvent.email(), userEvent);
 
         assertThrows(ConstraintViolationException.class, () -> userEventConsumer.consumeUserEvent(record));
 
-        verify(emailService, never()).notifyUser(any(UserEvent.class));
+        verify(emailDispatcher, never()).dispatch(any(UserEvent.class));
+    }
+
+    @Test
+    public void consumeUserEvent_whenSent_markedProcessed() {
+        UserEvent userEvent = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "created@email.com");
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+
+        BDDMockito.given(emailDispatcher.dispatch(userEvent)).willReturn(sent);
+
+        userEventConsumer.consumeUserEvent(record(0L, userEvent));
+
+        verify(processedEventStore, never()).markProcessed(userEvent.eventId());
+
+        sent.complete(null);
+
+        verify(processedEventStore).markProcessed(userEvent.eventId());
+    }
+
+    @Test
+    public void consumeUserEvent_whenNotSent_released() {
+        UserEvent userEvent = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "created@email.com");
+
+        BDDMockito.given(emailDispatcher.dispatch(userEvent))
+                .willReturn(CompletableFuture.failedFuture(new IllegalStateException("smtp is down")));
+
+        userEventConsumer.consumeUserEvent(record(0L, userEvent));
+
+        verify(processedEventStore).tryReserve(userEvent.eventId());
+        verify(processedEventStore).release(userEvent.eventId());
+        verify(processedEventStore, never()).markProcessed(userEvent.eventId());
+    }
+
+    @Test
+    public void consumeUserEvent_whenAlreadyProcessed_skipped() {
+        UserEvent userEvent = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "created@email.com");
+
+        BDDMockito.given(processedEventStore.tryReserve(userEvent.eventId())).willReturn(false);
+
+        CompletableFuture<Void> delivered = userEventConsumer.consumeUserEvent(record(0L, userEvent));
+
+        assertTrue(delivered.isDone());
+        verify(emailDispatcher, never()).dispatch(any(UserEvent.class));
+    }
+
+    @Test
+    public void consumeUserEvent_whenNoEventId_sentWithoutDeduplication() {
+        UserEvent userEvent = new UserEvent(null, UserStatus.CREATED, "created@email.com");
+
+        BDDMockito.given(emailDispatcher.dispatch(userEvent)).willReturn(CompletableFuture.completedFuture(null));
+
+        userEventConsumer.consumeUserEvent(record(0L, userEvent));
+
+        verify(emailDispatcher).dispatch(userEvent);
+        verifyNoInteractions(processedEventStore);
+    }
+
+    @Test
+    public void consumeUserEvents_whenEmailsSent_acknowledged() {
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        CompletableFuture<Void> second = new CompletableFuture<>();
+        List<ConsumerRecord<String, UserEvent>> records = List.of(
+                record(0L, new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "first@email.com")),
+                record(1L, new UserEvent(UUID.randomUUID(), UserStatus.DELETED, "second@email.com")));
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        BDDMockito.given(emailDispatcher.dispatch(records.get(0).value())).willReturn(first);
+        BDDMockito.given(emailDispatcher.dispatch(records.get(1).value())).willReturn(second);
+
+        userEventConsumer.consumeUserEvents(records, acknowledgment);
+        first.complete(null);
+
+        verify(acknowledgment, never()).acknowledge();
+
+        second.complete(null);
+
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    public void consumeUserEvents_whenLaterBatchSentFirst_acknowledgedInPollOrder() {
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        UserEvent firstEvent = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "first@email.com");
+        UserEvent secondEvent = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "second@email.com");
+        Acknowledgment firstAcknowledgment = mock(Acknowledgment.class);
+        Acknowledgment secondAcknowledgment = mock(Acknowledgment.class);
+
+        BDDMockito.given(emailDispatcher.dispatch(firstEvent)).willReturn(first);
+        BDDMockito.given(emailDispatcher.dispatch(secondEvent)).willReturn(CompletableFuture.completedFuture(null));
+
+        userEventConsumer.consumeUserEvents(List.of(record(0L, firstEvent)), firstAcknowledgment);
+        userEventConsumer.consumeUserEvents(List.of(record(1L, secondEvent)), secondAcknowledgment);
+
+        verify(secondAcknowledgment, never()).acknowledge();
+
+        first.complete(null);
+
+        InOrder inOrder = inOrder(firstAcknowledgment, secondAcknowledgment);
+        inOrder.verify(firstAcknowledgment).acknowledge();
+        inOrder.verify(secondAcknowledgment).acknowledge();
+    }
+
+    @Test
+    public void consumeUserEvents_whenInvalidUserEvent_skippedAndAcknowledged() {
+        List<ConsumerRecord<String, UserEvent>> records = List.of(
+                record(0L, new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "wrongemail.com")),
+                record(1L, new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "second@email.com")));
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+
+        BDDMockito.given(emailDispatcher.dispatch(records.get(1).value()))
+                .willReturn(CompletableFuture.completedFuture(null));
+
+        userEventConsumer.consumeUserEvents(records, acknowledgment);
+
+        verify(emailDispatcher, never()).dispatch(records.get(0).value());
+        verify(acknowledgment).acknowledge();
+    }
+
+    private static ConsumerRecord<String, UserEvent> record(long offset, UserEvent userEvent) {
+        return new ConsumerRecord<>("topic", 0, offset, userEvent.email(), userEvent);
     }
 }
@@ -0,0 +1,107 @@
+package ru.aston.intensive.util.mail;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.MailAuthenticationException;
+import org.springframework.mail.SimpleMailMessage;
+import ru.aston.intensive.util.config.MailPoolProperty;
+
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PooledJavaMailSenderTest {
+
+    @RegisterExtension
+    private static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+            .withConfiguration(GreenMailConfiguration.aConfig()
+                    .withUser("test@example.com", "username", "password"))
+            .withPerMethodLifecycle(true);
+
+    private PooledJavaMailSender mailSender;
+
+    @BeforeEach
+    void setUp() {
+        MailPoolProperty mailPoolProperty = new MailPoolProperty();
+        mailPoolProperty.setMaxMessagesPerConnection(5);
+        mailSender = mailSender(mailPoolProperty, "password");
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailSender.close();
+    }
+
+    @Test
+    void send_whenOneByOne_sessionReused() {
+        for (int i = 0; i < 4; i++) {
+            mailSender.send(message("user" + i + "@example.com"));
+        }
+
+        assertTrue(greenMail.waitForIncomingEmail(5000, 4));
+        assertEquals(1, mailSender.getCreatedConnections());
+        assertEquals(1, mailSender.getIdleConnections());
+        assertEquals(0, mailSender.getActiveConnections());
+    }
+
+    @Test
+    void send_whenMaxMessagesPerConnectionReached_sessionReopened() {
+        SimpleMailMessage[] messages = new SimpleMailMessage[12];
+        for (int i = 0; i < messages.length; i++) {
+            messages[i] = message("user" + i + "@example.com");
+        }
+
+        mailSender.send(messages);
+
+        assertTrue(greenMail.waitForIncomingEmail(5000, 12));
+        assertEquals(3, mailSender.getCreatedConnections());
+    }
+
+    @Test
+    void send_whenServerClosedIdleSession_sentOnNewSession() throws Exception {
+        mailSender.send(message("first@example.com"));
+        greenMail.stop();
+        greenMail.start();
+
+        mailSender.send(message("second@example.com"));
+
+        assertTrue(greenMail.waitForIncomingEmail(5000, 1));
+        assertEquals("second@example.com", greenMail.getReceivedMessages()[0].getAllRecipients()[0].toString());
+        assertEquals(2, mailSender.getCreatedConnections());
+    }
+
+    @Test
+    void send_whenWrongPassword_throwMailAuthenticationException() {
+        try (PooledJavaMailSender wrongPasswordSender = mailSender(new MailPoolProperty(), "wrong")) {
+            assertThrows(MailAuthenticationException.class,
+                    () -> wrongPasswordSender.send(message("user@example.com")));
+        }
+    }
+
+    private static PooledJavaMailSender mailSender(MailPoolProperty mailPoolProperty, String password) {
+        PooledJavaMailSender mailSender = new PooledJavaMailSender(mailPoolProperty);
+        mailSender.setHost("localhost");
+        mailSender.setPort(ServerSetupTest.SMTP.getPort());
+        mailSender.setUsername("username");
+        mailSender.setPassword(password);
+        Properties javaMailProperties = new Properties();
+        javaMailProperties.put("mail.smtp.auth", "true");
+        mailSender.setJavaMailProperties(javaMailProperties);
+        return mailSender;
+    }
+
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(to);
+        message.setSubject("Создание пользователя");
+        message.setText("Пользователь успешно создан");
+        return message;
+    }
+}
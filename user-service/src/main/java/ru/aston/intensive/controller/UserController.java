@@ -1,16 +1,29 @@
 package ru.aston.intensive.controller;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.aston.intensive.dto.UserBatchItemResponseDto;
+import ru.aston.intensive.dto.UserBatchUpdateRequestDto;
+import ru.aston.intensive.dto.UserNameSuggestionDto;
+import ru.aston.intensive.dto.UserPatchRequestDto;
 import ru.aston.intensive.dto.UserRequestDto;
 import ru.aston.intensive.dto.UserResponseDto;
+import ru.aston.intensive.dto.UserSearchFilter;
 import ru.aston.intensive.exception.ApiError;
 
 import java.util.List;
@@ -18,6 +31,10 @@ import java.util.List;
 @Tag(name = "User Management", description = "APIs for managing users")
 public interface UserController {
 
+    String BASE_PATH = "/api/users/";
+
+    int MAX_BATCH_SIZE = 1000;
+
     @Operation(
             summary = "Find users",
             description = "Find all users"
@@ -25,6 +42,69 @@ public interface UserController {
     @Tag(name = "Get")
     public ResponseEntity<List<EntityModel<UserResponseDto>>> findAll();
 
+    @Operation(
+            summary = "Find users page",
+            description = "Find users ordered by id, starting after the given id. " +
+                    "The response contains a 'next' link while more users are available",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Page of users",
+                            content = @Content(mediaType = "application/hal+json")
+                    )
+            }
+    )
+    @Tag(name = "Get")
+    public ResponseEntity<CollectionModel<EntityModel<UserResponseDto>>> findPage(
+            @RequestParam(required = false)
+            Long after,
+            @RequestParam(defaultValue = "100")
+            int size);
+
+    @Operation(
+            summary = "Search users",
+            description = "Find users by name prefix, age range, creation time range and email domain, " +
+                    "ordered by id, starting after the given id. The response contains a 'next' link " +
+                    "while more users are available",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Page of found users",
+                            content = @Content(mediaType = "application/hal+json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid filter",
+                            content = @Content(
+                                    mediaType = "application+json",
+                                    schema = @Schema(implementation = ApiError.class)
+                            )
+                    )
+            }
+    )
+    @Tag(name = "Get")
+    public ResponseEntity<CollectionModel<EntityModel<UserResponseDto>>> search(
+            @ParameterObject
+            UserSearchFilter filter,
+            @RequestParam(required = false)
+            Long after,
+            @RequestParam(defaultValue = "100")
+            int size);
+
+    @Operation(
+            summary = "Stream users",
+            description = "Stream all users as newline-delimited JSON, one user per line",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Users stream",
+                            content = @Content(mediaType = "application/x-ndjson")
+                    )
+            }
+    )
+    @Tag(name = "Get")
+    public ResponseEntity<StreamingResponseBody> stream();
+
     @Operation(
             summary = "Find user",
             description = "Find user by ID",
@@ -37,6 +117,11 @@ public interface UserController {
                                     schema = @Schema(implementation = UserResponseDto.class)
                             )
                     ),
+                    @ApiResponse(
+                            responseCode = "304",
+                            description = "User not changed since the version in If-None-Match " +
+                                    "or the time in If-Modified-Since"
+                    ),
                     @ApiResponse(
                             responseCode = "400",
                             description = "Invalid input data",
@@ -58,7 +143,50 @@ public interface UserController {
     @Tag(name = "Get")
     public ResponseEntity<EntityModel<UserResponseDto>> find(
             @PathVariable
-            Long id);
+            Long id,
+            @Parameter(hidden = true)
+            WebRequest webRequest);
+
+    @Operation(
+            summary = "Check email",
+            description = "Check whether the email is already used by some user",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Email is used"
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Email is available"
+                    )
+            }
+    )
+    @Tag(name = "Get")
+    public ResponseEntity<Void> checkEmail(
+            @PathVariable
+            String email);
+
+    @Operation(
+            summary = "Autocomplete user names",
+            description = "Find users whose name starts with the given text, ignoring case, ordered by name. " +
+                    "Served from memory, users changed through other instances show up within minutes",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Found users, empty for a blank text",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = UserNameSuggestionDto.class)
+                            )
+                    )
+            }
+    )
+    @Tag(name = "Get")
+    public ResponseEntity<List<UserNameSuggestionDto>> autocomplete(
+            @RequestParam("q")
+            String query,
+            @RequestParam(defaultValue = "10")
+            int limit);
 
     @Operation(
             summary = "Create user",
@@ -139,6 +267,70 @@ public interface UserController {
             @RequestBody
             UserRequestDto userRequestDto);
 
+    @Operation(
+            summary = "Patch user",
+            description = "Change only the sent fields of the existing user. If-Match with the ETag of " +
+                    "the user is required, the user is changed only if it still has that version. " +
+                    "If-Match: * changes whatever version is current",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "User patched successfully",
+                            content = @Content(
+                                    mediaType = "application/hal+json",
+                                    schema = @Schema(implementation = UserResponseDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid input data",
+                            content = @Content(
+                                    mediaType = "application+json",
+                                    schema = @Schema(implementation = ApiError.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "User not found by Id",
+                            content = @Content(
+                                    mediaType = "application+json",
+                                    schema = @Schema(implementation = ApiError.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "User with this Email already exist",
+                            content = @Content(
+                                    mediaType = "application+json",
+                                    schema = @Schema(implementation = ApiError.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "412",
+                            description = "User was changed since the version in If-Match",
+                            content = @Content(
+                                    mediaType = "application+json",
+                                    schema = @Schema(implementation = ApiError.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "428",
+                            description = "If-Match header is missing",
+                            content = @Content(
+                                    mediaType = "application+json",
+                                    schema = @Schema(implementation = ApiError.class)
+                            )
+                    )
+            }
+    )
+    public ResponseEntity<EntityModel<UserResponseDto>> patch(
+            @PathVariable
+            Long id,
+            @RequestBody
+            UserPatchRequestDto userPatchRequestDto,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+            String ifMatch);
+
     @Operation(
             summary = "Delete user",
             description = "Delete the existing user",
@@ -160,4 +352,84 @@ public interface UserController {
     ResponseEntity<String> delete(
             @PathVariable
             Long id);
+
+    @Operation(
+            summary = "Create users",
+            description = "Create up to 1000 users in one transaction. Every user gets its own result " +
+                    "with the status it would have got from the single create",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Batch processed, see the status of every item",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = UserBatchItemResponseDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Batch is too large",
+                            content = @Content(
+                                    mediaType = "application+json",
+                                    schema = @Schema(implementation = ApiError.class)
+                            )
+                    )
+            }
+    )
+    ResponseEntity<List<UserBatchItemResponseDto>> createAll(
+            @RequestBody
+            List<UserRequestDto> userRequestDtos);
+
+    @Operation(
+            summary = "Update users",
+            description = "Update up to 1000 existing users in one transaction. Every user gets its own result " +
+                    "with the status it would have got from the single update",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Batch processed, see the status of every item",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = UserBatchItemResponseDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Batch is too large",
+                            content = @Content(
+                                    mediaType = "application+json",
+                                    schema = @Schema(implementation = ApiError.class)
+                            )
+                    )
+            }
+    )
+    ResponseEntity<List<UserBatchItemResponseDto>> updateAll(
+            @RequestBody
+            List<UserBatchUpdateRequestDto> userBatchUpdateRequestDtos);
+
+    @Operation(
+            summary = "Delete users",
+            description = "Delete up to 1000 existing users by id in one transaction",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Batch processed, see the status of every item",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = UserBatchItemResponseDto.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Batch is too large",
+                            content = @Content(
+                                    mediaType = "application+json",
+                                    schema = @Schema(implementation = ApiError.class)
+                            )
+                    )
+            }
+    )
+    ResponseEntity<List<UserBatchItemResponseDto>> deleteAll(
+            @RequestBody
+            List<Long> ids);
 }
@@ -1,42 +1,180 @@
 package ru.aston.intensive.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
+import jakarta.validation.Validator;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.mediatype.hal.HalMediaTypeConfiguration;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import ru.aston.intensive.dto.UserBatchItemResponseDto;
+import ru.aston.intensive.dto.UserBatchUpdateRequestDto;
+import ru.aston.intensive.dto.UserNameSuggestionDto;
+import ru.aston.intensive.dto.UserPatchRequestDto;
 import ru.aston.intensive.dto.UserRequestDto;
 import ru.aston.intensive.dto.UserResponseDto;
+import ru.aston.intensive.dto.UserSearchFilter;
 import ru.aston.intensive.entity.UserEntity;
+import ru.aston.intensive.exception.BatchSizeExceededException;
+import ru.aston.intensive.exception.PreconditionRequiredException;
+import ru.aston.intensive.exception.UserVersionMismatchException;
 import ru.aston.intensive.service.UserService;
 import ru.aston.intensive.util.assembler.UserEntityToModelAssembler;
+import ru.aston.intensive.util.assembler.UserLinkTemplates;
 import ru.aston.intensive.util.mapper.UserMapper;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
 
 @RestController
-@RequestMapping("/api/users/")
+@RequestMapping(UserController.BASE_PATH)
 @Log4j2
-@RequiredArgsConstructor
 public class UserControllerImpl implements UserController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SUGGESTIONS = 20;
+
     private final UserService userService;
     private final UserEntityToModelAssembler userEntityToModelAssembler;
+    /**
+     * Writes the streamed users with {@code _links}, like the HAL converter does for the other endpoints.
+     */
+    private final ObjectMapper halObjectMapper;
+    private final Validator validator;
+
+    public UserControllerImpl(UserService userService,
+                              UserEntityToModelAssembler userEntityToModelAssembler,
+                              Jackson2ObjectMapperBuilder objectMapperBuilder,
+                              HalMediaTypeConfiguration halMediaTypeConfiguration,
+                              Validator validator) {
+        this.userService = userService;
+        this.userEntityToModelAssembler = userEntityToModelAssembler;
+        this.halObjectMapper = halMediaTypeConfiguration.configureObjectMapper(objectMapperBuilder.build());
+        this.validator = validator;
+    }
 
     @GetMapping
     public ResponseEntity<List<EntityModel<UserResponseDto>>> findAll() {
+        UserLinkTemplates linkTemplates = userEntityToModelAssembler.currentLinkTemplates();
         return ResponseEntity.ok(userService.findAll().stream()
-                .map(userEntityToModelAssembler::toModel)
+                .map(user -> userEntityToModelAssembler.toModel(user, linkTemplates))
                 .toList());
     }
 
+    @GetMapping(path = "page")
+    public ResponseEntity<CollectionModel<EntityModel<UserResponseDto>>> findPage(Long after, int size) {
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        List<UserEntity> users = userService.findPage(after, pageSize);
+
+        UserLinkTemplates linkTemplates = userEntityToModelAssembler.currentLinkTemplates();
+        CollectionModel<EntityModel<UserResponseDto>> page = CollectionModel.of(users.stream()
+                        .map(user -> userEntityToModelAssembler.toModel(user, linkTemplates))
+                        .toList(),
+                linkTo(methodOn(UserControllerImpl.class).findPage(after, pageSize)).withSelfRel());
+        if (users.size() == pageSize) {
+            Long lastId = users.getLast().getId();
+            page.add(linkTo(methodOn(UserControllerImpl.class).findPage(lastId, pageSize))
+                    .withRel(IanaLinkRelations.NEXT));
+        }
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping(path = "search")
+    public ResponseEntity<CollectionModel<EntityModel<UserResponseDto>>> search(@Valid UserSearchFilter filter,
+                                                                               Long after, int size) {
+        int pageSize = Math.clamp(size, 1, MAX_PAGE_SIZE);
+        List<UserEntity> users = userService.search(filter, after, pageSize);
+
+        UserLinkTemplates linkTemplates = userEntityToModelAssembler.currentLinkTemplates();
+        CollectionModel<EntityModel<UserResponseDto>> page = CollectionModel.of(users.stream()
+                        .map(user -> userEntityToModelAssembler.toModel(user, linkTemplates))
+                        .toList(),
+                Link.of(ServletUriComponentsBuilder.fromCurrentRequest().toUriString()).withSelfRel());
+        if (users.size() == pageSize) {
+            page.add(Link.of(ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", users.getLast().getId())
+                    .replaceQueryParam("size", pageSize)
+                    .toUriString(), IanaLinkRelations.NEXT));
+        }
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping(path = "stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        UserLinkTemplates linkTemplates = userEntityToModelAssembler.currentLinkTemplates();
+        ObjectWriter writer = halObjectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = halObjectMapper.getFactory().createGenerator(outputStream)) {
+                // lines are separated by the newlines below, not by the default root value space
+                generator.setRootValueSeparator(null);
+                userService.streamAll(user -> {
+                    try {
+                        writer.writeValue(generator, userEntityToModelAssembler.toModel(user, linkTemplates));
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * The validators come from the cached user, so a conditional GET costs no query while the
+     * user is cached and is answered from the same copy as the body.
+     */
     @GetMapping(path = "{id}")
-    public ResponseEntity<EntityModel<UserResponseDto>> find(Long id) {
+    public ResponseEntity<EntityModel<UserResponseDto>> find(Long id, WebRequest webRequest) {
+        UserResponseDto user = userService.findById(id);
+        if (webRequest.checkNotModified(eTag(user.version()), lastModified(user.updatedAt()))) {
+            return null;
+        }
 
-        return ResponseEntity
-                .ok(userEntityToModelAssembler.toModel(userService.findById(id)));
+        return ResponseEntity.ok()
+                .eTag(eTag(user.version()))
+                .lastModified(lastModified(user.updatedAt()))
+                .body(userEntityToModelAssembler.toModel(user));
+    }
+
+    @RequestMapping(path = "email/{email}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> checkEmail(String email) {
+        return userService.existsByEmail(email)
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping(path = "autocomplete")
+    public ResponseEntity<List<UserNameSuggestionDto>> autocomplete(String query, int limit) {
+        return ResponseEntity.ok(userService.autocomplete(query, Math.clamp(limit, 1, MAX_SUGGESTIONS)));
     }
 
     @PostMapping
@@ -57,6 +195,17 @@ public class UserControllerImpl implements UserController {
                 .ok(userEntityToModelAssembler.toModel(userService.update(id, userEntity)));
     }
 
+    @PatchMapping(path = "{id}")
+    public ResponseEntity<EntityModel<UserResponseDto>> patch(Long id,
+                                                              @Valid UserPatchRequestDto userPatchRequestDto,
+                                                              String ifMatch) {
+        UserResponseDto user = userService.patch(id, userPatchRequestDto, expectedVersion(id, ifMatch));
+        return ResponseEntity.ok()
+                .eTag(eTag(user.version()))
+                .lastModified(lastModified(user.updatedAt()))
+                .body(userEntityToModelAssembler.toModel(user));
+    }
+
     @DeleteMapping(path = "{id}")
     public ResponseEntity<String> delete(Long id) {
 
@@ -65,4 +214,141 @@ public class UserControllerImpl implements UserController {
                 .status(HttpStatus.NO_CONTENT)
                 .body("Successfully deleted user with id = " + id);
     }
+
+    @PostMapping(path = "batch")
+    public ResponseEntity<List<UserBatchItemResponseDto>> createAll(List<UserRequestDto> userRequestDtos) {
+        checkBatchSize(userRequestDtos);
+        List<UserBatchItemResponseDto> results = new ArrayList<>(Collections.nCopies(userRequestDtos.size(), null));
+        List<Integer> validIndexes = new ArrayList<>(userRequestDtos.size());
+        List<UserEntity> users = new ArrayList<>(userRequestDtos.size());
+
+        for (int i = 0; i < userRequestDtos.size(); i++) {
+            UserRequestDto userRequestDto = userRequestDtos.get(i);
+            UserBatchItemResponseDto invalid = validate(i, null, userRequestDto);
+            if (invalid != null) {
+                results.set(i, invalid);
+            } else {
+                validIndexes.add(i);
+                users.add(UserMapper.dtoToEntity(userRequestDto));
+            }
+        }
+
+        mergeResults(results, validIndexes, userService.createAll(users));
+        return ResponseEntity.ok(results);
+    }
+
+    @PutMapping(path = "batch")
+    public ResponseEntity<List<UserBatchItemResponseDto>> updateAll(
+            List<UserBatchUpdateRequestDto> userBatchUpdateRequestDtos) {
+        checkBatchSize(userBatchUpdateRequestDtos);
+        List<UserBatchItemResponseDto> results =
+                new ArrayList<>(Collections.nCopies(userBatchUpdateRequestDtos.size(), null));
+        List<Integer> validIndexes = new ArrayList<>(userBatchUpdateRequestDtos.size());
+        List<UserEntity> users = new ArrayList<>(userBatchUpdateRequestDtos.size());
+
+        for (int i = 0; i < userBatchUpdateRequestDtos.size(); i++) {
+            UserBatchUpdateRequestDto updateRequestDto = userBatchUpdateRequestDtos.get(i);
+            UserBatchItemResponseDto invalid = validate(i,
+                    updateRequestDto == null ? null : updateRequestDto.id(), updateRequestDto);
+            if (invalid != null) {
+                results.set(i, invalid);
+            } else {
+                validIndexes.add(i);
+                UserEntity userEntity = UserMapper.dtoToEntity(updateRequestDto.user());
+                userEntity.setId(updateRequestDto.id());
+                users.add(userEntity);
+            }
+        }
+
+        mergeResults(results, validIndexes, userService.updateAll(users));
+        return ResponseEntity.ok(results);
+    }
+
+    @DeleteMapping(path = "batch")
+    public ResponseEntity<List<UserBatchItemResponseDto>> deleteAll(List<Long> ids) {
+        checkBatchSize(ids);
+        List<UserBatchItemResponseDto> results = new ArrayList<>(Collections.nCopies(ids.size(), null));
+        List<Integer> validIndexes = new ArrayList<>(ids.size());
+        List<Long> validIds = new ArrayList<>(ids.size());
+
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) == null) {
+                results.set(i, new UserBatchItemResponseDto(i, null, HttpStatus.BAD_REQUEST.value(),
+                        "id: must not be null"));
+            } else {
+                validIndexes.add(i);
+                validIds.add(ids.get(i));
+            }
+        }
+
+        mergeResults(results, validIndexes, userService.deleteAll(validIds));
+        return ResponseEntity.ok(results);
+    }
+
+    /**
+     * Strong validator, the version changes with every update of the user.
+     */
+    private static String eTag(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Version from a strong If-Match ETag, {@code null} for {@code *}. The header is required,
+     * so a client can't overwrite a change it hasn't seen by leaving it out. A weak or foreign
+     * ETag can't match any version.
+     */
+    private static Long expectedVersion(Long id, String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            throw new PreconditionRequiredException("Patch of user with id = " + id
+                    + " requires If-Match with its ETag, or * to patch any version");
+        }
+        if (ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.length() > 2 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+            try {
+                return Long.parseLong(eTag.substring(1, eTag.length() - 1));
+            } catch (NumberFormatException ignored) {
+                // falls through to the mismatch below
+            }
+        }
+        throw new UserVersionMismatchException("User with id = " + id + " doesn't match If-Match " + ifMatch);
+    }
+
+    private static long lastModified(LocalDateTime updatedAt) {
+        return updatedAt == null ? -1 : updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private void checkBatchSize(List<?> batch) {
+        if (batch.size() > MAX_BATCH_SIZE) {
+            log.warn("batch of {} items rejected", batch.size());
+            throw new BatchSizeExceededException("Batch size must not exceed " + MAX_BATCH_SIZE);
+        }
+    }
+
+    private <T> UserBatchItemResponseDto validate(int index, Long id, T item) {
+        if (item == null) {
+            return new UserBatchItemResponseDto(index, id, HttpStatus.BAD_REQUEST.value(), "must not be null");
+        }
+        Set<ConstraintViolation<T>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return new UserBatchItemResponseDto(index, id, HttpStatus.BAD_REQUEST.value(), violations.stream()
+                .map(violation -> String.format("%s: %s", violation.getPropertyPath(), violation.getMessage()))
+                .collect(Collectors.joining("; ")));
+    }
+
+    /**
+     * Puts the service results, indexed within the valid items, back to the positions of the request.
+     */
+    private void mergeResults(List<UserBatchItemResponseDto> results,
+                              List<Integer> validIndexes,
+                              List<UserBatchItemResponseDto> serviceResults) {
+        for (int i = 0; i < serviceResults.size(); i++) {
+            int index = validIndexes.get(i);
+            results.set(index, serviceResults.get(i).withIndex(index));
+        }
+    }
 }
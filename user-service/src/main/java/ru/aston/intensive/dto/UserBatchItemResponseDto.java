@@ -0,0 +1,11 @@
+package ru.aston.intensive.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserBatchItemResponseDto(int index, Long id, int status, String message) {
+
+    public UserBatchItemResponseDto withIndex(int index) {
+        return new UserBatchItemResponseDto(index, id, status, message);
+    }
+}
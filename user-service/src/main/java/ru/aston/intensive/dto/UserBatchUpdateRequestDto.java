@@ -0,0 +1,14 @@
+package ru.aston.intensive.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+public record UserBatchUpdateRequestDto(
+        @NotNull(message = "Id пользователя не должен быть пустым")
+        Long id,
+
+        @NotNull(message = "Данные пользователя не должны быть пустыми")
+        @Valid
+        UserRequestDto user
+) {
+}
@@ -0,0 +1,16 @@
+package ru.aston.intensive.dto;
+
+/**
+ * @param email      email the user had, evicted from the email cache
+ * @param addedEmail email the user got, added to the email index of every instance,
+ *                   {@code null} if the email didn't change or the user was deleted
+ */
+public record UserCacheInvalidationEvent(
+
+        Long id,
+
+        String email,
+
+        String addedEmail
+) {
+}
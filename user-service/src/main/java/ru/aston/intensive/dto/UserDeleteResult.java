@@ -0,0 +1,11 @@
+package ru.aston.intensive.dto;
+
+/**
+ * Row returned by a delete, the email feeds the {@code DELETED} event.
+ */
+public interface UserDeleteResult {
+
+    Long getId();
+
+    String getEmail();
+}
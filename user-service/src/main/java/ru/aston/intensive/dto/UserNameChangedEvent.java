@@ -0,0 +1,12 @@
+package ru.aston.intensive.dto;
+
+/**
+ * @param name name the user got, {@code null} if the user was deleted
+ */
+public record UserNameChangedEvent(
+
+        long id,
+
+        String name
+) {
+}
@@ -0,0 +1,9 @@
+package ru.aston.intensive.dto;
+
+public record UserNameSuggestionDto(
+
+        Long id,
+
+        String name
+) {
+}
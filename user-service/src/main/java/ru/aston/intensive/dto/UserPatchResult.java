@@ -0,0 +1,23 @@
+package ru.aston.intensive.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row returned by the conditional update, with the email the user had before it.
+ */
+public interface UserPatchResult {
+
+    Long getId();
+
+    String getName();
+
+    String getEmail();
+
+    Integer getAge();
+
+    Long getVersion();
+
+    LocalDateTime getUpdatedAt();
+
+    String getOldEmail();
+}
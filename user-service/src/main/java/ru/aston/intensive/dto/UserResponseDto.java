@@ -1,4 +1,17 @@
 package ru.aston.intensive.dto;
 
-public record UserResponseDto(String name, String email, Integer age) {
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+
+/**
+ * The id is only carried for building links and the version and update time for
+ * conditional requests, they aren't part of the JSON body.
+ */
+public record UserResponseDto(@JsonIgnore Long id,
+                              String name,
+                              String email,
+                              Integer age,
+                              @JsonIgnore Long version,
+                              @JsonIgnore LocalDateTime updatedAt) {
 }
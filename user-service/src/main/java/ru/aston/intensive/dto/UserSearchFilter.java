@@ -0,0 +1,34 @@
+package ru.aston.intensive.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters of the user search, {@code null} filters are not applied.
+ * Name prefix and email domain are matched case-insensitively, {@code createdTo} is exclusive.
+ */
+public record UserSearchFilter(
+        @Size(max = 100, message = "Префикс имени должен быть не длиннее 100 символов")
+        String namePrefix,
+
+        @Min(value = 0, message = "Минимальный возраст не может быть отрицательным")
+        Integer minAge,
+
+        @Max(value = 150, message = "Максимальный возраст должен быть не больше 150")
+        Integer maxAge,
+
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        LocalDateTime createdFrom,
+
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+        LocalDateTime createdTo,
+
+        @Pattern(regexp = "[^@\\s]+", message = "Домен email указывается без @ и пробелов")
+        String emailDomain
+) {
+}
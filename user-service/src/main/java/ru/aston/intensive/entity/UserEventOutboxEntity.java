@@ -0,0 +1,48 @@
+package ru.aston.intensive.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import ru.aston.intensive.enumerated.UserStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Entity
+@Table(name = "user_event_outbox")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class UserEventOutboxEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_event_outbox_id_seq")
+    @SequenceGenerator(name = "user_event_outbox_id_seq", sequenceName = "user_event_outbox_id_seq",
+            allocationSize = 50)
+    private Long id;
+
+    /**
+     * Insert order, assigned by the database row by row. Ids come in pooled blocks per instance,
+     * so a later event may get a lower id than an earlier one.
+     */
+    @Column(name = "seq", insertable = false, updatable = false)
+    private Long seq;
+
+    @Column(name = "event_id", nullable = false, updatable = false)
+    private UUID eventId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action", nullable = false, length = 20)
+    private UserStatus action;
+
+    @Column(name = "email", nullable = false, length = 150)
+    private String email;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false, nullable = false)
+    private LocalDateTime createdAt;
+}
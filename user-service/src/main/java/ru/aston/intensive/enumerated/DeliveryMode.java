@@ -0,0 +1,5 @@
+package ru.aston.intensive.enumerated;
+
+public enum DeliveryMode {
+    FIRE_AND_FORGET, WAIT_FOR_ACK
+}
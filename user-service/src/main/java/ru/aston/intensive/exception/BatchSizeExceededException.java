@@ -0,0 +1,7 @@
+package ru.aston.intensive.exception;
+
+public class BatchSizeExceededException extends RuntimeException {
+    public BatchSizeExceededException(String message) {
+        super(message);
+    }
+}
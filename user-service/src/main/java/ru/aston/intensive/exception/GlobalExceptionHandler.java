@@ -37,6 +37,42 @@ public class GlobalExceptionHandler {
                 .body(apiError);
     }
 
+    @ExceptionHandler(UserVersionMismatchException.class)
+    public ResponseEntity<ApiError> handleVersionMismatch(UserVersionMismatchException exception) {
+        ApiError apiError = ApiError.builder()
+                .title("Precondition failed")
+                .status(HttpStatus.PRECONDITION_FAILED.value())
+                .message(exception.getMessage())
+                .build();
+        return ResponseEntity
+                .status(HttpStatus.PRECONDITION_FAILED)
+                .body(apiError);
+    }
+
+    @ExceptionHandler(PreconditionRequiredException.class)
+    public ResponseEntity<ApiError> handlePreconditionRequired(PreconditionRequiredException exception) {
+        ApiError apiError = ApiError.builder()
+                .title("Precondition required")
+                .status(HttpStatus.PRECONDITION_REQUIRED.value())
+                .message(exception.getMessage())
+                .build();
+        return ResponseEntity
+                .status(HttpStatus.PRECONDITION_REQUIRED)
+                .body(apiError);
+    }
+
+    @ExceptionHandler(BatchSizeExceededException.class)
+    public ResponseEntity<ApiError> handleBatchSizeExceeded(BatchSizeExceededException exception) {
+        ApiError apiError = ApiError.builder()
+                .title("Batch too large")
+                .status(HttpStatus.BAD_REQUEST.value())
+                .message(exception.getMessage())
+                .build();
+        return ResponseEntity
+                .status(HttpStatus.BAD_REQUEST)
+                .body(apiError);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiError> handleValidationException(MethodArgumentNotValidException exception) {
         ApiError apiError = ApiError.builder()
@@ -0,0 +1,7 @@
+package ru.aston.intensive.exception;
+
+public class PreconditionRequiredException extends RuntimeException {
+    public PreconditionRequiredException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package ru.aston.intensive.exception;
+
+public class UserVersionMismatchException extends RuntimeException {
+    public UserVersionMismatchException(String message) {
+        super(message);
+    }
+}
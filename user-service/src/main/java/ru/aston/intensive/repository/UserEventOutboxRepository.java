@@ -0,0 +1,35 @@
+package ru.aston.intensive.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.aston.intensive.entity.UserEventOutboxEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface UserEventOutboxRepository extends JpaRepository<UserEventOutboxEntity, Long> {
+
+    /**
+     * Oldest unpublished events in insert order, locked for the current transaction. Rows locked
+     * by another instance are skipped, so relays of several instances don't publish twice. An event
+     * is left out while an older one of the same email is outside the batch, locked by another relay
+     * or past the limit, so the events of an email are published in order.
+     */
+    @Query(value = """
+            WITH batch AS (
+                SELECT * FROM user_event_outbox ORDER BY seq LIMIT :limit FOR UPDATE SKIP LOCKED
+            )
+            SELECT * FROM batch b
+            WHERE NOT EXISTS (
+                SELECT 1 FROM user_event_outbox o
+                WHERE o.email = b.email AND o.seq < b.seq AND o.id NOT IN (SELECT id FROM batch)
+            )
+            ORDER BY b.seq
+            """, nativeQuery = true)
+    List<UserEventOutboxEntity> lockNextBatch(@Param("limit") int limit);
+
+    @Query("SELECT MIN(o.createdAt) FROM UserEventOutboxEntity o")
+    Optional<LocalDateTime> findOldestCreatedAt();
+}
@@ -1,14 +1,112 @@
 package ru.aston.intensive.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import ru.aston.intensive.dto.UserDeleteResult;
+import ru.aston.intensive.dto.UserNameSuggestionDto;
+import ru.aston.intensive.dto.UserPatchResult;
+import ru.aston.intensive.dto.UserResponseDto;
 import ru.aston.intensive.entity.UserEntity;
+import ru.aston.intensive.util.config.CacheConfig;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface UserRepository extends JpaRepository<UserEntity, Long> {
+public interface UserRepository extends JpaRepository<UserEntity, Long>, JpaSpecificationExecutor<UserEntity> {
 
+    String STREAM_FETCH_SIZE = "500";
+
+    /**
+     * Not read-only, so a cache miss is loaded from the primary, as in
+     * {@link ru.aston.intensive.service.UserService#findById(Long)}.
+     */
+    @Transactional
+    @Cacheable(cacheNames = CacheConfig.USERS_BY_EMAIL, unless = "#result == null")
     @Query(value = "SELECT * FROM users as u WHERE u.email = :email", nativeQuery = true)
     Optional<UserEntity> findByEmail(@Param("email") String email);
+
+    @Query("SELECT new ru.aston.intensive.dto.UserResponseDto(u.id, u.name, u.email, u.age, u.version, u.updatedAt) "
+            + "FROM UserEntity u WHERE u.id = :id")
+    Optional<UserResponseDto> findDtoById(@Param("id") Long id);
+
+    @Query("SELECT new ru.aston.intensive.dto.UserResponseDto(u.id, u.name, u.email, u.age, u.version, u.updatedAt) "
+            + "FROM UserEntity u")
+    List<UserResponseDto> findAllDtos();
+
+
+    /**
+     * Inserts the user unless the email is taken, atomically, also against concurrent inserts.
+     * Empty if the email is already used. The id comes from the sequence of the entity,
+     * every {@code nextval} reserves its own block, so it can't collide with ids Hibernate allocates.
+     */
+    @Query(value = """
+            INSERT INTO users (id, name, email, age, created_at, updated_at, version)
+            VALUES (nextval('users_id_seq'), :name, :email, :age, now(), now(), 0)
+            ON CONFLICT (email) DO NOTHING
+            RETURNING *
+            """, nativeQuery = true)
+    Optional<UserEntity> insertIfEmailFree(@Param("name") String name,
+                                           @Param("email") String email,
+                                           @Param("age") int age);
+
+    /**
+     * Sets the non-null fields in one statement, if the user still has the expected version
+     * ({@code null} skips the check). Empty if the user doesn't exist or has another version.
+     */
+    @Query(value = """
+            WITH old AS (SELECT id, email FROM users WHERE id = :id FOR UPDATE)
+            UPDATE users u
+            SET name = COALESCE(CAST(:name AS VARCHAR), u.name),
+                email = COALESCE(CAST(:email AS VARCHAR), u.email),
+                age = COALESCE(CAST(:age AS INTEGER), u.age),
+                version = u.version + 1,
+                updated_at = now()
+            FROM old
+            WHERE u.id = old.id
+              AND (CAST(:version AS BIGINT) IS NULL OR u.version = CAST(:version AS BIGINT))
+            RETURNING u.id AS "id", u.name AS "name", u.email AS "email", u.age AS "age",
+                      u.version AS "version", u.updated_at AS "updatedAt", old.email AS "oldEmail"
+            """, nativeQuery = true)
+    Optional<UserPatchResult> patch(@Param("id") Long id,
+                                    @Param("name") String name,
+                                    @Param("email") String email,
+                                    @Param("age") Integer age,
+                                    @Param("version") Long version);
+
+    @Query(value = "DELETE FROM users WHERE id = :id RETURNING email", nativeQuery = true)
+    Optional<String> deleteReturningEmail(@Param("id") Long id);
+
+    @Query(value = "DELETE FROM users WHERE id IN (:ids) RETURNING id AS \"id\", email AS \"email\"",
+            nativeQuery = true)
+    List<UserDeleteResult> deleteAllReturningEmail(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT u.email FROM UserEntity u WHERE u.email IN :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    List<UserEntity> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT u FROM UserEntity u ORDER BY u.id")
+    Stream<UserEntity> streamAll();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT u.email FROM UserEntity u")
+    Stream<String> streamAllEmails();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    @Query("SELECT new ru.aston.intensive.dto.UserNameSuggestionDto(u.id, u.name) FROM UserEntity u")
+    Stream<UserNameSuggestionDto> streamAllNames();
 }
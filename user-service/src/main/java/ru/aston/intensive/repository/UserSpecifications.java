@@ -0,0 +1,68 @@
+package ru.aston.intensive.repository;
+
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+import ru.aston.intensive.dto.UserSearchFilter;
+import ru.aston.intensive.entity.UserEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Search predicates of users. Only the given filters get into the query, so every
+ * combination of filters is a separate statement with its own plan. Name prefix and
+ * email domain are written exactly as the expression indexes of the {@code users} table.
+ */
+public final class UserSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private UserSpecifications() {
+    }
+
+    /**
+     * Users matching the filter with id greater than {@code afterId}, for keyset pagination by id.
+     */
+    public static Specification<UserEntity> matching(UserSearchFilter filter, Long afterId) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (afterId != null) {
+                predicates.add(cb.greaterThan(root.get("id"), afterId));
+            }
+            if (hasText(filter.namePrefix())) {
+                predicates.add(cb.like(cb.lower(root.get("name")), likePrefix(filter.namePrefix()), LIKE_ESCAPE));
+            }
+            if (filter.minAge() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("age"), filter.minAge()));
+            }
+            if (filter.maxAge() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("age"), filter.maxAge()));
+            }
+            if (filter.createdFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), filter.createdFrom()));
+            }
+            if (filter.createdTo() != null) {
+                predicates.add(cb.lessThan(root.get("createdAt"), filter.createdTo()));
+            }
+            if (hasText(filter.emailDomain())) {
+                predicates.add(cb.equal(
+                        cb.lower(cb.function("split_part", String.class,
+                                root.get("email"), cb.literal("@"), cb.literal(2))),
+                        filter.emailDomain().toLowerCase(Locale.ROOT)));
+            }
+            return cb.and(predicates.toArray(Predicate[]::new));
+        };
+    }
+
+    private static String likePrefix(String prefix) {
+        return prefix.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_") + "%";
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
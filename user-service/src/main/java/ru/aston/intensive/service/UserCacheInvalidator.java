@@ -0,0 +1,15 @@
+package ru.aston.intensive.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import ru.aston.intensive.dto.UserCacheInvalidationEvent;
+
+public interface UserCacheInvalidator {
+
+    /**
+     * Evicts the changed user from the local caches and adds its new email to the email index
+     * once the transaction is committed, then broadcasts the invalidation to the other instances.
+     */
+    void onUserChanged(UserCacheInvalidationEvent event);
+
+    void consumeInvalidation(ConsumerRecord<Long, UserCacheInvalidationEvent> record);
+}
@@ -0,0 +1,20 @@
+package ru.aston.intensive.service;
+
+/**
+ * In-memory sketch of the existing user emails. Emails written through this instance are added
+ * once the transaction is committed, emails written through other instances when their cache
+ * invalidation broadcast arrives, and a periodic rebuild catches up on lost broadcasts. A negative
+ * answer can therefore lag behind another instance by the broadcast delay; writes racing it are
+ * still rejected by the unique constraint on {@code users.email}.
+ */
+public interface UserEmailIndex {
+
+    /**
+     * @return {@code false} if the email is definitely not used, {@code true} if it may be
+     */
+    boolean mightContain(String email);
+
+    void add(String email);
+
+    void rebuild();
+}
@@ -0,0 +1,10 @@
+package ru.aston.intensive.service;
+
+public interface UserEventOutboxRelay {
+
+    /**
+     * Publishes the pending outbox events to Kafka in batches and deletes the
+     * acknowledged ones, until the outbox is drained or a batch fails.
+     */
+    void relay();
+}
@@ -1,8 +1,16 @@
 package ru.aston.intensive.service;
 
 import ru.aston.intensive.dto.UserEvent;
+import ru.aston.intensive.enumerated.DeliveryMode;
+
+import java.util.concurrent.CompletableFuture;
 
 public interface UserKafkaProducer {
 
-    void sendUserEvent(UserEvent event);
+    /**
+     * Sends the event, the returned future completes when the broker acknowledges it.
+     * With {@link DeliveryMode#FIRE_AND_FORGET} the call returns right away, with
+     * {@link DeliveryMode#WAIT_FOR_ACK} it blocks until the ack and throws if the send failed.
+     */
+    CompletableFuture<Void> sendUserEvent(UserEvent event, DeliveryMode deliveryMode);
 }
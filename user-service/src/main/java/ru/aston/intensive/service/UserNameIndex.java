@@ -0,0 +1,34 @@
+package ru.aston.intensive.service;
+
+import ru.aston.intensive.dto.UserNameChangedEvent;
+import ru.aston.intensive.dto.UserNameSuggestionDto;
+
+import java.util.List;
+
+/**
+ * In-memory index of user names for type-ahead. Changes made through this instance are
+ * visible once their transaction commits, changes made through other instances after the
+ * next rebuild.
+ * <p>
+ * Footprint is about 70 bytes per user for a 12-character name, so about 70 MB per
+ * million users; a merge of the pending changes briefly needs 12 more bytes per user.
+ */
+public interface UserNameIndex {
+
+    /**
+     * Users whose name starts with the prefix, ignoring case, ordered by name and id.
+     */
+    List<UserNameSuggestionDto> complete(String prefix, int limit);
+
+    void put(long id, String name);
+
+    /**
+     * Applies the change once the transaction that made it is committed, so a rolled back
+     * change never reaches the index.
+     */
+    void onUserNameChanged(UserNameChangedEvent event);
+
+    void remove(long id);
+
+    void rebuild();
+}
@@ -1,18 +1,91 @@
 package ru.aston.intensive.service;
 
+import ru.aston.intensive.dto.UserBatchItemResponseDto;
+import ru.aston.intensive.dto.UserNameSuggestionDto;
+import ru.aston.intensive.dto.UserPatchRequestDto;
+import ru.aston.intensive.dto.UserResponseDto;
+import ru.aston.intensive.dto.UserSearchFilter;
 import ru.aston.intensive.entity.UserEntity;
+import ru.aston.intensive.exception.UserVersionMismatchException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
 
-    List<UserEntity> findAll();
+    /**
+     * Users projected straight into DTOs, without loading entities into the persistence context.
+     */
+    List<UserResponseDto> findAll();
 
-    UserEntity findById(Long id);
+    /**
+     * Keyset page of users ordered by id.
+     *
+     * @param afterId id of the last user of the previous page, {@code null} for the first page
+     * @param size    maximum number of users in the page
+     */
+    List<UserEntity> findPage(Long afterId, int size);
+
+    /**
+     * Keyset page of the users matching the filter, ordered by id.
+     *
+     * @param afterId id of the last user of the previous page, {@code null} for the first page
+     * @param size    maximum number of users in the page
+     */
+    List<UserEntity> search(UserSearchFilter filter, Long afterId, int size);
+
+    /**
+     * Passes every user to the consumer through a server-side cursor, so the whole
+     * table is never held in memory. Entities are detached right after the consumer returns.
+     */
+    void streamAll(Consumer<UserEntity> consumer);
+
+    UserResponseDto findById(Long id);
+
+    boolean existsByEmail(String email);
+
+    /**
+     * Users whose name starts with the prefix, served from the in-memory name index.
+     */
+    List<UserNameSuggestionDto> autocomplete(String prefix, int limit);
 
     UserEntity create(UserEntity userEntity);
 
+    /**
+     * Replaces the name and age of the user. A {@code null} email keeps the current one,
+     * as in {@link #updateAll(List)} and {@link #patch(long, UserPatchRequestDto, Long)}.
+     */
     UserEntity update(long userId, UserEntity user);
 
+    /**
+     * Changes only the non-null fields with one conditional UPDATE, without reading the user first.
+     *
+     * @param expectedVersion version the client has seen, {@code null} to patch whatever version is current
+     * @throws UserVersionMismatchException if the user has another version
+     */
+    UserResponseDto patch(long userId, UserPatchRequestDto patch, Long expectedVersion);
+
     void delete(Long id);
+
+    /**
+     * Creates the users in one transaction with batched inserts. Email uniqueness is
+     * checked for the whole batch with a single query.
+     *
+     * @return one result per user, in the order of the given list
+     */
+    List<UserBatchItemResponseDto> createAll(List<UserEntity> users);
+
+    /**
+     * Updates the users identified by {@link UserEntity#getId()} in one transaction with batched updates.
+     *
+     * @return one result per user, in the order of the given list
+     */
+    List<UserBatchItemResponseDto> updateAll(List<UserEntity> users);
+
+    /**
+     * Deletes the users in one transaction with a single delete statement.
+     *
+     * @return one result per id, in the order of the given list
+     */
+    List<UserBatchItemResponseDto> deleteAll(List<Long> ids);
 }
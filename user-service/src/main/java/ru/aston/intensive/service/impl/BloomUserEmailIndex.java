@@ -0,0 +1,75 @@
+package ru.aston.intensive.service.impl;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.aston.intensive.repository.UserRepository;
+import ru.aston.intensive.service.UserEmailIndex;
+import ru.aston.intensive.util.config.EmailIndexProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class BloomUserEmailIndex implements UserEmailIndex {
+
+    private final UserRepository userRepository;
+    private final EmailIndexProperty emailIndexProperty;
+
+    /**
+     * {@code null} until the first rebuild finishes, every email "might" exist meanwhile.
+     */
+    private volatile BloomFilter<CharSequence> filter;
+
+    /**
+     * Filter being rebuilt, receives the emails written while the table is scanned.
+     */
+    private volatile BloomFilter<CharSequence> building;
+
+    @Override
+    public boolean mightContain(String email) {
+        BloomFilter<CharSequence> current = filter;
+        return current == null || current.mightContain(email);
+    }
+
+    @Override
+    public void add(String email) {
+        BloomFilter<CharSequence> current = filter;
+        if (current != null) {
+            current.put(email);
+        }
+        BloomFilter<CharSequence> next = building;
+        if (next != null) {
+            next.put(email);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            initialDelayString = "#{@emailIndexProperty.rebuildInterval.toMillis()}",
+            fixedDelayString = "#{@emailIndexProperty.rebuildInterval.toMillis()}"
+    )
+    public synchronized void rebuild() {
+        long expectedInsertions = Math.max(emailIndexProperty.getExpectedInsertions(), userRepository.count() * 2);
+        building = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8),
+                expectedInsertions, emailIndexProperty.getFalsePositiveProbability());
+
+        try (Stream<String> emails = userRepository.streamAllEmails()) {
+            emails.forEach(building::put);
+        }
+        filter = building;
+        building = null;
+        log.info("email index rebuilt: approximate size = {}, expected fpp = {}",
+                filter.approximateElementCount(), filter.expectedFpp());
+    }
+}
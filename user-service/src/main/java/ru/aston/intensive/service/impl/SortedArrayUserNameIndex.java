@@ -0,0 +1,263 @@
+package ru.aston.intensive.service.impl;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.aston.intensive.dto.UserNameChangedEvent;
+import ru.aston.intensive.dto.UserNameSuggestionDto;
+import ru.aston.intensive.repository.UserRepository;
+import ru.aston.intensive.service.UserNameIndex;
+import ru.aston.intensive.util.config.NameIndexProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Names sorted case-insensitively in two parallel arrays, searched with a binary search.
+ * Changes go to a small sorted set and a set of hidden ids, both merged into the arrays
+ * once there are {@code name-index.merge-threshold} of them. Reads never take a lock.
+ */
+@Service
+@Log4j2
+public class SortedArrayUserNameIndex implements UserNameIndex {
+
+    private static final Comparator<UserNameSuggestionDto> ORDER = Comparator
+            .comparing(UserNameSuggestionDto::name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(UserNameSuggestionDto::id);
+
+    private final UserRepository userRepository;
+    private final NameIndexProperty nameIndexProperty;
+
+    private volatile Snapshot snapshot = new Snapshot(new String[0], new long[0]);
+
+    /**
+     * Changes made while a rebuild scans the table, replayed onto the rebuilt index.
+     * {@code null} when no rebuild is running. Guarded by {@code this}.
+     */
+    private List<Consumer<Snapshot>> pendingChanges;
+
+    public SortedArrayUserNameIndex(UserRepository userRepository, NameIndexProperty nameIndexProperty) {
+        this.userRepository = userRepository;
+        this.nameIndexProperty = nameIndexProperty;
+    }
+
+    @Override
+    public List<UserNameSuggestionDto> complete(String prefix, int limit) {
+        Snapshot current = snapshot;
+        List<UserNameSuggestionDto> suggestions = new ArrayList<>(limit);
+
+        int base = current.lowerBound(prefix);
+        Iterator<UserNameSuggestionDto> added = current.added
+                .tailSet(new UserNameSuggestionDto(Long.MIN_VALUE, prefix))
+                .iterator();
+        UserNameSuggestionDto nextAdded = nextMatching(added, prefix);
+
+        while (suggestions.size() < limit) {
+            base = current.skipRemoved(base, prefix);
+            boolean baseMatches = base < current.names.length && startsWith(current.names[base], prefix);
+            if (!baseMatches && nextAdded == null) {
+                break;
+            }
+            if (baseMatches && (nextAdded == null || current.compare(base, nextAdded) < 0)) {
+                suggestions.add(new UserNameSuggestionDto(current.ids[base], current.names[base]));
+                base++;
+            } else {
+                suggestions.add(nextAdded);
+                nextAdded = nextMatching(added, prefix);
+            }
+        }
+        return suggestions;
+    }
+
+    @Override
+    public synchronized void put(long id, String name) {
+        if (name == null) {
+            remove(id);
+            return;
+        }
+        snapshot.put(id, name);
+        if (pendingChanges != null) {
+            pendingChanges.add(rebuilt -> rebuilt.put(id, name));
+        }
+        mergeIfNeeded();
+    }
+
+    @Override
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onUserNameChanged(UserNameChangedEvent event) {
+        put(event.id(), event.name());
+    }
+
+    @Override
+    public synchronized void remove(long id) {
+        snapshot.remove(id);
+        if (pendingChanges != null) {
+            pendingChanges.add(rebuilt -> rebuilt.remove(id));
+        }
+        mergeIfNeeded();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(
+            initialDelayString = "#{@nameIndexProperty.rebuildInterval.toMillis()}",
+            fixedDelayString = "#{@nameIndexProperty.rebuildInterval.toMillis()}"
+    )
+    public void rebuild() {
+        synchronized (this) {
+            if (pendingChanges != null) {
+                return;
+            }
+            pendingChanges = new ArrayList<>();
+        }
+        try {
+            List<UserNameSuggestionDto> users;
+            try (Stream<UserNameSuggestionDto> names = userRepository.streamAllNames()) {
+                users = new ArrayList<>(names.filter(user -> user.name() != null).toList());
+            }
+            users.sort(ORDER);
+
+            String[] names = new String[users.size()];
+            long[] ids = new long[users.size()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = users.get(i).name();
+                ids[i] = users.get(i).id();
+            }
+
+            synchronized (this) {
+                Snapshot rebuilt = new Snapshot(names, ids);
+                pendingChanges.forEach(change -> change.accept(rebuilt));
+                snapshot = rebuilt;
+            }
+            log.info("name index rebuilt: {} users", names.length);
+        } finally {
+            synchronized (this) {
+                pendingChanges = null;
+            }
+        }
+    }
+
+    private void mergeIfNeeded() {
+        if (snapshot.changes >= nameIndexProperty.getMergeThreshold()) {
+            snapshot = snapshot.merged();
+        }
+    }
+
+    private static UserNameSuggestionDto nextMatching(Iterator<UserNameSuggestionDto> added, String prefix) {
+        if (!added.hasNext()) {
+            return null;
+        }
+        UserNameSuggestionDto next = added.next();
+        return startsWith(next.name(), prefix) ? next : null;
+    }
+
+    private static boolean startsWith(String name, String prefix) {
+        return name.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    /**
+     * Sorted names with the changes made since they were sorted. The arrays are never changed,
+     * the change sets are changed only under the lock of the index.
+     */
+    private static final class Snapshot {
+
+        private final String[] names;
+        private final long[] ids;
+        private final ConcurrentSkipListSet<UserNameSuggestionDto> added = new ConcurrentSkipListSet<>(ORDER);
+        private final Map<Long, String> addedNames = new ConcurrentHashMap<>();
+        private final Set<Long> removed = ConcurrentHashMap.newKeySet();
+        private int changes;
+
+        private Snapshot(String[] names, long[] ids) {
+            this.names = names;
+            this.ids = ids;
+        }
+
+        /**
+         * Adds the name before hiding the old one, so a concurrent read may briefly
+         * see both names of a renamed user but never none.
+         */
+        private void put(long id, String name) {
+            String oldName = addedNames.put(id, name);
+            added.add(new UserNameSuggestionDto(id, name));
+            if (oldName != null && !oldName.equals(name)) {
+                added.remove(new UserNameSuggestionDto(id, oldName));
+            }
+            removed.add(id);
+            changes++;
+        }
+
+        private void remove(long id) {
+            removed.add(id);
+            String oldName = addedNames.remove(id);
+            if (oldName != null) {
+                added.remove(new UserNameSuggestionDto(id, oldName));
+            }
+            changes++;
+        }
+
+        private int lowerBound(String prefix) {
+            int low = 0;
+            int high = names.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (String.CASE_INSENSITIVE_ORDER.compare(names[middle], prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int skipRemoved(int index, String prefix) {
+            while (index < names.length && startsWith(names[index], prefix) && removed.contains(ids[index])) {
+                index++;
+            }
+            return index;
+        }
+
+        private int compare(int index, UserNameSuggestionDto user) {
+            int byName = String.CASE_INSENSITIVE_ORDER.compare(names[index], user.name());
+            return byName != 0 ? byName : Long.compare(ids[index], user.id());
+        }
+
+        private Snapshot merged() {
+            String[] mergedNames = new String[names.length + added.size()];
+            long[] mergedIds = new long[mergedNames.length];
+            Iterator<UserNameSuggestionDto> addedUsers = added.iterator();
+            UserNameSuggestionDto nextAdded = addedUsers.hasNext() ? addedUsers.next() : null;
+            int size = 0;
+            for (int i = 0; i < names.length || nextAdded != null; ) {
+                if (i < names.length && removed.contains(ids[i])) {
+                    i++;
+                } else if (i < names.length && (nextAdded == null || compare(i, nextAdded) < 0)) {
+                    mergedNames[size] = names[i];
+                    mergedIds[size++] = ids[i++];
+                } else {
+                    mergedNames[size] = nextAdded.name();
+                    mergedIds[size++] = nextAdded.id();
+                    nextAdded = addedUsers.hasNext() ? addedUsers.next() : null;
+                }
+            }
+            return new Snapshot(
+                    size == mergedNames.length ? mergedNames : Arrays.copyOf(mergedNames, size),
+                    size == mergedIds.length ? mergedIds : Arrays.copyOf(mergedIds, size));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.aston.intensive.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.aston.intensive.dto.UserCacheInvalidationEvent;
+import ru.aston.intensive.service.UserCacheInvalidator;
+import ru.aston.intensive.service.UserEmailIndex;
+import ru.aston.intensive.util.config.CacheConfig;
+import ru.aston.intensive.util.config.KafkaProperty;
+
+@Service
+@Log4j2
+@RequiredArgsConstructor
+public class UserCacheInvalidatorImpl implements UserCacheInvalidator {
+
+    private final CacheManager cacheManager;
+    private final KafkaProperty kafkaProperty;
+    private final KafkaTemplate<Long, UserCacheInvalidationEvent> cacheInvalidationKafkaTemplate;
+    private final UserEmailIndex userEmailIndex;
+
+    @Override
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onUserChanged(UserCacheInvalidationEvent event) {
+        evict(event);
+        cacheInvalidationKafkaTemplate.send(kafkaProperty.getCacheInvalidationTopic(), event.id(), event)
+                .whenComplete((result, throwable) -> {
+                    if (throwable != null) {
+                        log.error("Couldn't broadcast cache invalidation for user {}", event.id(), throwable);
+                    }
+                });
+    }
+
+    @Override
+    @KafkaListener(
+            topics = "#{@kafkaProperty.cacheInvalidationTopic}",
+            containerFactory = "cacheInvalidationListenerContainerFactory"
+    )
+    public void consumeInvalidation(ConsumerRecord<Long, UserCacheInvalidationEvent> record) {
+        log.debug("Received cache invalidation: key={}, partition={}", record.key(), record.partition());
+        evict(record.value());
+    }
+
+    private void evict(UserCacheInvalidationEvent event) {
+        Cache usersById = cacheManager.getCache(CacheConfig.USERS_BY_ID);
+        if (usersById != null && event.id() != null) {
+            usersById.evict(event.id());
+        }
+        Cache usersByEmail = cacheManager.getCache(CacheConfig.USERS_BY_EMAIL);
+        if (usersByEmail != null && event.email() != null) {
+            usersByEmail.evict(event.email());
+        }
+        if (event.addedEmail() != null) {
+            userEmailIndex.add(event.addedEmail());
+        }
+    }
+}
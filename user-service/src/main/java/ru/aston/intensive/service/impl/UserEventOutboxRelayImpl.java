@@ -0,0 +1,127 @@
+package ru.aston.intensive.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.aston.intensive.dto.UserEvent;
+import ru.aston.intensive.entity.UserEventOutboxEntity;
+import ru.aston.intensive.enumerated.DeliveryMode;
+import ru.aston.intensive.repository.UserEventOutboxRepository;
+import ru.aston.intensive.service.UserEventOutboxRelay;
+import ru.aston.intensive.service.UserKafkaProducer;
+import ru.aston.intensive.util.config.OutboxProperty;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@Log4j2
+public class UserEventOutboxRelayImpl implements UserEventOutboxRelay {
+
+    private final UserEventOutboxRepository outboxRepository;
+    private final UserKafkaProducer userKafkaProducer;
+    private final OutboxProperty outboxProperty;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final Counter publishedEvents;
+    private final Counter failedBatches;
+    private final Timer batchTimer;
+
+    public UserEventOutboxRelayImpl(UserEventOutboxRepository outboxRepository,
+                                    UserKafkaProducer userKafkaProducer,
+                                    OutboxProperty outboxProperty,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.userKafkaProducer = userKafkaProducer;
+        this.outboxProperty = outboxProperty;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+        Gauge.builder("user.outbox.lag", lagMillis, lag -> lag.get() / 1000.0)
+                .description("Age of the oldest unpublished user event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("user.outbox.pending", pendingEvents, AtomicLong::get)
+                .description("Unpublished user events")
+                .register(meterRegistry);
+        this.publishedEvents = Counter.builder("user.outbox.published")
+                .description("User events published from the outbox")
+                .register(meterRegistry);
+        this.failedBatches = Counter.builder("user.outbox.failures")
+                .description("Outbox batches that failed to publish")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("user.outbox.batch")
+                .description("Time to publish and delete one outbox batch")
+                .register(meterRegistry);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "#{@outboxProperty.pollInterval.toMillis()}")
+    public void relay() {
+        try {
+            int relayed;
+            do {
+                relayed = batchTimer.record(this::relayBatch);
+            } while (relayed == outboxProperty.getBatchSize());
+        } catch (RuntimeException e) {
+            failedBatches.increment();
+            log.error("Couldn't relay user events from outbox, will retry", e);
+        }
+        updateLag();
+    }
+
+    private int relayBatch() {
+        Integer relayed = transactionTemplate.execute(status -> {
+            List<UserEventOutboxEntity> batch = outboxRepository.lockNextBatch(outboxProperty.getBatchSize());
+            if (batch.isEmpty()) {
+                return 0;
+            }
+
+            // the rows stay locked while sending, so a send that already failed, e.g. with no
+            // broker metadata within kafka.producer.max-block, fails the batch without the rest
+            List<CompletableFuture<Void>> acks = new ArrayList<>(batch.size());
+            for (UserEventOutboxEntity outboxEvent : batch) {
+                CompletableFuture<Void> ack = userKafkaProducer.sendUserEvent(
+                        new UserEvent(outboxEvent.getEventId(), outboxEvent.getAction(), outboxEvent.getEmail()),
+                        DeliveryMode.FIRE_AND_FORGET);
+                if (ack.isCompletedExceptionally()) {
+                    ack.join();
+                }
+                acks.add(ack);
+            }
+            CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new))
+                    .orTimeout(outboxProperty.getSendTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                    .join();
+
+            outboxRepository.deleteAllInBatch(batch);
+            publishedEvents.increment(batch.size());
+            log.debug("relayed {} user events from outbox", batch.size());
+            return batch.size();
+        });
+        return relayed == null ? 0 : relayed;
+    }
+
+    private void updateLag() {
+        try {
+            pendingEvents.set(outboxRepository.count());
+            lagMillis.set(outboxRepository.findOldestCreatedAt()
+                    .map(createdAt -> Duration.between(createdAt, LocalDateTime.now()).toMillis())
+                    .orElse(0L));
+        } catch (RuntimeException e) {
+            log.warn("Couldn't update outbox lag", e);
+        }
+    }
+}
@@ -1,35 +1,113 @@
 package ru.aston.intensive.service.impl;
 
-import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
-import io.github.resilience4j.retry.annotation.Retry;
-import lombok.RequiredArgsConstructor;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.kafka.KafkaException;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import ru.aston.intensive.dto.UserEvent;
-import ru.aston.intensive.enumerated.UserStatus;
+import ru.aston.intensive.enumerated.DeliveryMode;
 import ru.aston.intensive.service.UserKafkaProducer;
 import ru.aston.intensive.util.config.KafkaProperty;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
 @Service
 @Log4j2
-@RequiredArgsConstructor
 public class UserKafkaProducerImpl implements UserKafkaProducer {
 
+    public static final String CIRCUIT_BREAKER_NAME = "userEventsProducer";
+
     private final KafkaProperty kafkaProperty;
+    private final KafkaTemplate<String, UserEvent> kafkaTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final Timer acknowledgedTimer;
+    private final Timer failedTimer;
 
-    private final KafkaTemplate<UserStatus, UserEvent> kafkaTemplate;
+    public UserKafkaProducerImpl(KafkaProperty kafkaProperty,
+                                 KafkaTemplate<String, UserEvent> kafkaTemplate,
+                                 CircuitBreakerRegistry circuitBreakerRegistry,
+                                 MeterRegistry meterRegistry) {
+        this.kafkaProperty = kafkaProperty;
+        this.kafkaTemplate = kafkaTemplate;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(CIRCUIT_BREAKER_NAME);
+        this.acknowledgedTimer = sendTimer(meterRegistry, "acknowledged");
+        this.failedTimer = sendTimer(meterRegistry, "failed");
+    }
 
-    @Retry(name = "userEventsProducer", fallbackMethod = "sendMessageFallback")
-    @CircuitBreaker(name = "userEventsProducer", fallbackMethod = "sendMessageFallback")
     @Override
-    public void sendUserEvent(UserEvent event) {
-        kafkaTemplate.send(kafkaProperty.getTopic(), event.action(), event);
-        log.info("Order sent to kafka: action={}, email={}", event.action(), event.email());
+    public CompletableFuture<Void> sendUserEvent(UserEvent event, DeliveryMode deliveryMode) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            log.warn("Kafka circuit breaker is open, event not sent: action={}, email={}",
+                    event.action(), event.email());
+            CallNotPermittedException notPermitted =
+                    CallNotPermittedException.createCallNotPermittedException(circuitBreaker);
+            if (deliveryMode == DeliveryMode.WAIT_FOR_ACK) {
+                throw notPermitted;
+            }
+            return CompletableFuture.failedFuture(notPermitted);
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<Void> ack;
+        try {
+            ack = kafkaTemplate.send(kafkaProperty.getTopic(), event.email(), event)
+                    .thenAccept(result -> log.debug("Event acknowledged by kafka: action={}, offset={}",
+                            event.action(), result.getRecordMetadata().offset()));
+        } catch (RuntimeException e) {
+            ack = CompletableFuture.failedFuture(e);
+        }
+        ack = ack.whenComplete((ignored, error) -> onSendComplete(event, System.nanoTime() - start, error));
+
+        if (deliveryMode == DeliveryMode.WAIT_FOR_ACK) {
+            awaitAck(ack);
+        }
+        return ack;
+    }
+
+    private void onSendComplete(UserEvent event, long durationNanos, Throwable error) {
+        if (error == null) {
+            circuitBreaker.onSuccess(durationNanos, TimeUnit.NANOSECONDS);
+            acknowledgedTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+            return;
+        }
+        Throwable cause = unwrap(error);
+        circuitBreaker.onError(durationNanos, TimeUnit.NANOSECONDS, cause);
+        failedTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        log.error("Couldn't send message to Kafka for user {}.", event.email(), cause);
+    }
+
+    private void awaitAck(CompletableFuture<Void> ack) {
+        try {
+            ack.get(kafkaProperty.getProducer().getAckTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while waiting for kafka ack", e);
+        } catch (Exception e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new KafkaException("Kafka didn't acknowledge user event", cause);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return (error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null ? error.getCause() : error;
     }
 
-    private void sendMessageFallback(UserEvent userEvent, Throwable throwable) {
-        log.error("Couldn't send message to Kafka for user {}.",
-                userEvent.email(), throwable);
+    private static Timer sendTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("user.kafka.send")
+                .description("Time from send to broker ack of user events")
+                .tag("result", result)
+                .register(meterRegistry);
     }
 }
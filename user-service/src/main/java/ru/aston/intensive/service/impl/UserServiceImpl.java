@@ -1,54 +1,140 @@
 package ru.aston.intensive.service.impl;
 
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import ru.aston.intensive.dto.UserEvent;
+import ru.aston.intensive.dto.UserBatchItemResponseDto;
+import ru.aston.intensive.dto.UserCacheInvalidationEvent;
+import ru.aston.intensive.dto.UserDeleteResult;
+import ru.aston.intensive.dto.UserNameChangedEvent;
+import ru.aston.intensive.dto.UserNameSuggestionDto;
+import ru.aston.intensive.dto.UserPatchRequestDto;
+import ru.aston.intensive.dto.UserPatchResult;
+import ru.aston.intensive.dto.UserResponseDto;
+import ru.aston.intensive.dto.UserSearchFilter;
 import ru.aston.intensive.entity.UserEntity;
+import ru.aston.intensive.entity.UserEventOutboxEntity;
 import ru.aston.intensive.enumerated.UserStatus;
 import ru.aston.intensive.exception.EmailExistingException;
 import ru.aston.intensive.exception.UserNotFoundException;
+import ru.aston.intensive.exception.UserVersionMismatchException;
+import ru.aston.intensive.repository.UserEventOutboxRepository;
 import ru.aston.intensive.repository.UserRepository;
-import ru.aston.intensive.service.UserKafkaProducer;
+import ru.aston.intensive.repository.UserSpecifications;
+import ru.aston.intensive.service.UserEmailIndex;
+import ru.aston.intensive.service.UserNameIndex;
 import ru.aston.intensive.service.UserService;
+import ru.aston.intensive.util.config.CacheConfig;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Log4j2
 @Service
 @RequiredArgsConstructor
+@Timed(value = "user.service", description = "Latency of user service operations")
 public class UserServiceImpl implements UserService {
 
-    private final UserKafkaProducer userKafkaProducer;
     private final UserRepository userRepository;
+    private final UserEventOutboxRepository outboxRepository;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserEmailIndex userEmailIndex;
+    private final UserNameIndex userNameIndex;
 
     @Override
-    public List<UserEntity> findAll() {
-        return userRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<UserResponseDto> findAll() {
+        return userRepository.findAllDtos();
     }
 
     @Override
-    public UserEntity findById(Long id) {
-        return userRepository.findById(id)
+    @Transactional(readOnly = true)
+    public List<UserEntity> findPage(Long afterId, int size) {
+        return userRepository.findByIdGreaterThanOrderByIdAsc(afterId == null ? 0L : afterId, Limit.of(size));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserEntity> search(UserSearchFilter filter, Long afterId, int size) {
+        return userRepository.findBy(UserSpecifications.matching(filter, afterId),
+                query -> query.sortBy(Sort.by("id")).limit(size).all());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<UserEntity> consumer) {
+        try (Stream<UserEntity> users = userRepository.streamAll()) {
+            users.forEach(user -> {
+                consumer.accept(user);
+                entityManager.detach(user);
+            });
+        }
+    }
+
+    /**
+     * Not read-only, so a cache miss is loaded from the primary: a row read from a lagging
+     * replica would stay in the shared cache until it expires.
+     */
+    @Override
+    @Transactional
+    @Cacheable(cacheNames = CacheConfig.USERS_BY_ID, key = "#id")
+    public UserResponseDto findById(Long id) {
+        return userRepository.findDtoById(id)
                 .orElseThrow(() -> {
                     log.warn("user not found with id = {}", id);
                     return new UserNotFoundException("Not found user with id = " + id);
                 });
     }
 
+    @Override
+    public boolean existsByEmail(String email) {
+        return isEmailTaken(email);
+    }
+
+    @Override
+    public List<UserNameSuggestionDto> autocomplete(String prefix, int limit) {
+        String normalizedPrefix = prefix.strip();
+        if (normalizedPrefix.isEmpty()) {
+            return List.of();
+        }
+        return userNameIndex.complete(normalizedPrefix, limit);
+    }
+
     @Override
     @Transactional
     public UserEntity create(UserEntity userEntity) {
-        if (userRepository.findByEmail(userEntity.getEmail()).isPresent()) {
+        Optional<UserEntity> savedUser = userRepository.insertIfEmailFree(
+                userEntity.getName(), userEntity.getEmail(), userEntity.getAge());
+        if (savedUser.isEmpty()) {
             log.warn("user with email already exist");
             throw new EmailExistingException("User already exist with email = " + userEntity.getEmail());
         }
-        UserEntity savedUser = userRepository.save(userEntity);
-        log.info("created user with id = {}", savedUser.getId());
-        userKafkaProducer.sendUserEvent(new UserEvent(UserStatus.CREATED, savedUser.getEmail()));
-        return savedUser;
+        UserEntity user = savedUser.get();
+        eventPublisher.publishEvent(new UserCacheInvalidationEvent(user.getId(), null, user.getEmail()));
+        eventPublisher.publishEvent(new UserNameChangedEvent(user.getId(), user.getName()));
+        log.info("created user with id = {}", user.getId());
+        outboxRepository.save(toOutboxEvent(UserStatus.CREATED, user.getEmail()));
+        return user;
     }
 
     @Override
@@ -60,31 +146,235 @@ public class UserServiceImpl implements UserService {
             throw new UserNotFoundException("User not exist with id = " + userId);
         }
         UserEntity oldUser = optionalUserEntity.get();
+        String oldEmail = oldUser.getEmail();
 
-        if (user.getEmail() != null && !oldUser.getEmail().equals(user.getEmail())) {
-            if (userRepository.findByEmail(user.getEmail()).isPresent()) {
-                log.warn("Can't set existing in db email");
-                throw new EmailExistingException("User already exist with email = " + user.getEmail());
-            }
+        boolean emailChanged = isEmailChanged(oldUser, user);
+        if (emailChanged && isEmailTaken(user.getEmail())) {
+            log.warn("Can't set existing in db email");
+            throw new EmailExistingException("User already exist with email = " + user.getEmail());
         }
 
-        oldUser.setEmail(user.getEmail());
+        if (emailChanged) {
+            oldUser.setEmail(user.getEmail());
+        }
         oldUser.setName(user.getName());
         oldUser.setAge(user.getAge());
 
+        if (emailChanged) {
+            try {
+                userRepository.flush();
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Can't set existing in db email, rejected by database");
+                throw new EmailExistingException("User already exist with email = " + user.getEmail());
+            }
+        }
+        eventPublisher.publishEvent(new UserCacheInvalidationEvent(oldUser.getId(), oldEmail,
+                emailChanged ? user.getEmail() : null));
+        eventPublisher.publishEvent(new UserNameChangedEvent(oldUser.getId(), oldUser.getName()));
+
         return oldUser;
     }
 
+    @Override
+    @Transactional
+    public UserResponseDto patch(long userId, UserPatchRequestDto patch, Long expectedVersion) {
+        Optional<UserPatchResult> patched;
+        try {
+            patched = userRepository.patch(userId, patch.name(), patch.email(), patch.age(), expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Can't set existing in db email, rejected by database");
+            throw new EmailExistingException("User already exist with email = " + patch.email());
+        }
+        if (patched.isEmpty()) {
+            if (!userRepository.existsById(userId)) {
+                log.warn("Can't found user for patch with id = {}", userId);
+                throw new UserNotFoundException("User not exist with id = " + userId);
+            }
+            log.warn("User with id = {} was changed, expected version = {}", userId, expectedVersion);
+            throw new UserVersionMismatchException(
+                    "User with id = " + userId + " was changed, expected version = " + expectedVersion);
+        }
+
+        UserPatchResult user = patched.get();
+        eventPublisher.publishEvent(new UserCacheInvalidationEvent(user.getId(), user.getOldEmail(),
+                user.getEmail().equals(user.getOldEmail()) ? null : user.getEmail()));
+        eventPublisher.publishEvent(new UserNameChangedEvent(user.getId(), user.getName()));
+        return new UserResponseDto(user.getId(), user.getName(), user.getEmail(), user.getAge(),
+                user.getVersion(), user.getUpdatedAt());
+    }
+
     @Override
     @Transactional
     public void delete(Long id) {
-        Optional<UserEntity> deletedUser = userRepository.findById(id);
-        if (deletedUser.isEmpty()) {
+        Optional<String> deletedEmail = userRepository.deleteReturningEmail(id);
+        if (deletedEmail.isEmpty()) {
             log.warn("Can't found user for delete with id = {}", id);
             throw new UserNotFoundException("User not exist with id = " + id);
         }
-        UserEntity user = deletedUser.get();
-        userRepository.delete(user);
-        userKafkaProducer.sendUserEvent(new UserEvent(UserStatus.DELETED, user.getEmail()));
+        eventPublisher.publishEvent(new UserCacheInvalidationEvent(id, deletedEmail.get(), null));
+        eventPublisher.publishEvent(new UserNameChangedEvent(id, null));
+        outboxRepository.save(toOutboxEvent(UserStatus.DELETED, deletedEmail.get()));
+    }
+
+    @Override
+    @Transactional
+    public List<UserBatchItemResponseDto> createAll(List<UserEntity> users) {
+        Set<String> takenEmails = findTakenEmails(users.stream().map(UserEntity::getEmail).toList());
+        Set<String> batchEmails = new HashSet<>();
+
+        List<UserBatchItemResponseDto> results = new ArrayList<>(users.size());
+        List<UserEntity> newUsers = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            String email = users.get(i).getEmail();
+            if (email == null) {
+                results.add(new UserBatchItemResponseDto(i, null, HttpStatus.BAD_REQUEST.value(),
+                        "email: must not be null"));
+            } else if (takenEmails.contains(email) || !batchEmails.add(email)) {
+                results.add(new UserBatchItemResponseDto(i, null, HttpStatus.CONFLICT.value(),
+                        "User already exist with email = " + email));
+            } else {
+                results.add(null);
+                newUsers.add(users.get(i));
+            }
+        }
+
+        try {
+            userRepository.saveAll(newUsers);
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            log.warn("batch contains email that already exist, rejected by database");
+            throw new EmailExistingException("Batch contains email that already exist");
+        }
+        log.info("created {} users in batch", newUsers.size());
+
+        List<UserEventOutboxEntity> outboxEvents = new ArrayList<>(newUsers.size());
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == null) {
+                UserEntity savedUser = users.get(i);
+                eventPublisher.publishEvent(
+                        new UserCacheInvalidationEvent(savedUser.getId(), null, savedUser.getEmail()));
+                eventPublisher.publishEvent(new UserNameChangedEvent(savedUser.getId(), savedUser.getName()));
+                outboxEvents.add(toOutboxEvent(UserStatus.CREATED, savedUser.getEmail()));
+                results.set(i, new UserBatchItemResponseDto(i, savedUser.getId(), HttpStatus.CREATED.value(), null));
+            }
+        }
+        outboxRepository.saveAll(outboxEvents);
+        return results;
+    }
+
+    @Override
+    @Transactional
+    public List<UserBatchItemResponseDto> updateAll(List<UserEntity> users) {
+        Map<Long, UserEntity> existingUsers = userRepository
+                .findAllById(users.stream().map(UserEntity::getId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(UserEntity::getId, Function.identity()));
+        Set<String> takenEmails = findTakenEmails(users.stream()
+                .filter(user -> isEmailChanged(existingUsers.get(user.getId()), user))
+                .map(UserEntity::getEmail)
+                .toList());
+        Set<String> batchEmails = new HashSet<>();
+
+        List<UserBatchItemResponseDto> results = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            UserEntity user = users.get(i);
+            UserEntity oldUser = existingUsers.get(user.getId());
+            if (oldUser == null) {
+                results.add(new UserBatchItemResponseDto(i, user.getId(), HttpStatus.NOT_FOUND.value(),
+                        "User not exist with id = " + user.getId()));
+                continue;
+            }
+            if (isEmailChanged(oldUser, user)
+                    && (takenEmails.contains(user.getEmail()) || !batchEmails.add(user.getEmail()))) {
+                results.add(new UserBatchItemResponseDto(i, user.getId(), HttpStatus.CONFLICT.value(),
+                        "User already exist with email = " + user.getEmail()));
+                continue;
+            }
+            boolean emailChanged = isEmailChanged(oldUser, user);
+            eventPublisher.publishEvent(new UserCacheInvalidationEvent(oldUser.getId(), oldUser.getEmail(),
+                    emailChanged ? user.getEmail() : null));
+            if (emailChanged) {
+                oldUser.setEmail(user.getEmail());
+            }
+            oldUser.setName(user.getName());
+            oldUser.setAge(user.getAge());
+            eventPublisher.publishEvent(new UserNameChangedEvent(oldUser.getId(), oldUser.getName()));
+            results.add(new UserBatchItemResponseDto(i, user.getId(), HttpStatus.OK.value(), null));
+        }
+
+        try {
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            log.warn("batch contains email that already exist, rejected by database");
+            throw new EmailExistingException("Batch contains email that already exist");
+        }
+        return results;
+    }
+
+    @Override
+    @Transactional
+    public List<UserBatchItemResponseDto> deleteAll(List<Long> ids) {
+        List<UserDeleteResult> deletedUsers = ids.isEmpty()
+                ? List.of()
+                : userRepository.deleteAllReturningEmail(new HashSet<>(ids));
+        Set<Long> deletedIds = deletedUsers.stream()
+                .map(UserDeleteResult::getId)
+                .collect(Collectors.toSet());
+
+        List<UserEventOutboxEntity> outboxEvents = new ArrayList<>(deletedUsers.size());
+        for (UserDeleteResult user : deletedUsers) {
+            eventPublisher.publishEvent(new UserCacheInvalidationEvent(user.getId(), user.getEmail(), null));
+            eventPublisher.publishEvent(new UserNameChangedEvent(user.getId(), null));
+            outboxEvents.add(toOutboxEvent(UserStatus.DELETED, user.getEmail()));
+        }
+        outboxRepository.saveAll(outboxEvents);
+        log.info("deleted {} users in batch", deletedUsers.size());
+
+        List<UserBatchItemResponseDto> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            results.add(deletedIds.contains(id)
+                    ? new UserBatchItemResponseDto(i, id, HttpStatus.NO_CONTENT.value(), null)
+                    : new UserBatchItemResponseDto(i, id, HttpStatus.NOT_FOUND.value(),
+                    "User not exist with id = " + id));
+        }
+        return results;
+    }
+
+    /**
+     * One set-based query for the emails of the batch that are already used. The email index
+     * isn't consulted, an email written through another instance may not have reached it yet
+     * and would fail the whole batch at flush instead of its own item.
+     */
+    private Set<String> findTakenEmails(List<String> emails) {
+        Set<String> candidates = emails.stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        return candidates.isEmpty()
+                ? Set.of()
+                : new HashSet<>(userRepository.findExistingEmails(candidates));
+    }
+
+    private boolean isEmailChanged(UserEntity oldUser, UserEntity user) {
+        return oldUser != null && user.getEmail() != null && !user.getEmail().equals(oldUser.getEmail());
+    }
+
+    /**
+     * The event is stored in the transaction of the user change and published by the outbox relay.
+     * Its id is fixed here, so every resend of the row carries the same one.
+     */
+    private UserEventOutboxEntity toOutboxEvent(UserStatus action, String email) {
+        return UserEventOutboxEntity.builder()
+                .eventId(UUID.randomUUID())
+                .action(action)
+                .email(email)
+                .build();
+    }
+
+    /**
+     * Asks the database only when the email index can't rule the email out.
+     */
+    private boolean isEmailTaken(String email) {
+        return userEmailIndex.mightContain(email) && userRepository.findByEmail(email).isPresent();
     }
 }
@@ -1,29 +1,57 @@
 package ru.aston.intensive.util.assembler;
 
 import org.springframework.hateoas.EntityModel;
-import org.springframework.hateoas.IanaLinkRelations;
 import org.springframework.hateoas.server.RepresentationModelAssembler;
 import org.springframework.stereotype.Component;
-import ru.aston.intensive.controller.UserControllerImpl;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import ru.aston.intensive.dto.UserResponseDto;
 import ru.aston.intensive.entity.UserEntity;
 import ru.aston.intensive.util.mapper.UserMapper;
 
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class UserEntityToModelAssembler implements
         RepresentationModelAssembler<UserEntity, EntityModel<UserResponseDto>> {
 
+    /**
+     * The base URI comes from the request Host header, so only a few of them are kept.
+     */
+    private static final int MAX_BASE_URIS = 32;
+
+    private final Map<String, UserLinkTemplates> linkTemplates = new ConcurrentHashMap<>();
+
     @Override
     public EntityModel<UserResponseDto> toModel(UserEntity entity) {
+        return toModel(entity, currentLinkTemplates());
+    }
+
+    public EntityModel<UserResponseDto> toModel(UserEntity entity, UserLinkTemplates templates) {
+        return toModel(UserMapper.entityToDto(entity), templates);
+    }
+
+    public EntityModel<UserResponseDto> toModel(UserResponseDto user) {
+        return toModel(user, currentLinkTemplates());
+    }
+
+    public EntityModel<UserResponseDto> toModel(UserResponseDto user, UserLinkTemplates templates) {
+        return EntityModel.of(user, templates.links(user.id()));
+    }
 
-        return EntityModel.of(UserMapper.entityToDto(entity),
-                linkTo(methodOn(UserControllerImpl.class).find(entity.getId())).withSelfRel(),
-                linkTo(methodOn(UserControllerImpl.class).create(null)).withRel("create"),
-                linkTo(methodOn(UserControllerImpl.class).update(entity.getId(), null)).withRel("update"),
-                linkTo(methodOn(UserControllerImpl.class).delete(entity.getId())).withRel("delete"),
-                linkTo(methodOn(UserControllerImpl.class).findAll()).withRel(IanaLinkRelations.COLLECTION));
+    /**
+     * Link templates for the base URI of the current request, the same one
+     * {@code WebMvcLinkBuilder.linkTo} would use.
+     */
+    public UserLinkTemplates currentLinkTemplates() {
+        String baseUri = ServletUriComponentsBuilder.fromCurrentServletMapping().toUriString();
+        UserLinkTemplates templates = linkTemplates.get(baseUri);
+        if (templates == null) {
+            templates = new UserLinkTemplates(baseUri);
+            if (linkTemplates.size() < MAX_BASE_URIS) {
+                linkTemplates.putIfAbsent(baseUri, templates);
+            }
+        }
+        return templates;
     }
 }
@@ -0,0 +1,34 @@
+package ru.aston.intensive.util.assembler;
+
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import ru.aston.intensive.controller.UserController;
+
+import java.util.List;
+
+/**
+ * Links of a user resource prepared for one base URI. The id-independent links are
+ * built once, the others only need the id appended to a ready prefix.
+ */
+public final class UserLinkTemplates {
+
+    private final String userUriPrefix;
+    private final Link createLink;
+    private final Link collectionLink;
+
+    UserLinkTemplates(String baseUri) {
+        this.userUriPrefix = baseUri + UserController.BASE_PATH;
+        this.createLink = Link.of(userUriPrefix, "create");
+        this.collectionLink = Link.of(userUriPrefix, IanaLinkRelations.COLLECTION);
+    }
+
+    public List<Link> links(Long id) {
+        String userUri = userUriPrefix + id;
+        return List.of(
+                Link.of(userUri, IanaLinkRelations.SELF),
+                createLink,
+                Link.of(userUri, "update"),
+                Link.of(userUri, "delete"),
+                collectionLink);
+    }
+}
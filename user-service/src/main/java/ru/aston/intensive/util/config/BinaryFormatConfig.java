@@ -0,0 +1,38 @@
+package ru.aston.intensive.util.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.hateoas.mediatype.hal.HalMediaTypeConfiguration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Smile ({@code application/x-jackson-smile}) and CBOR ({@code application/cbor}) responses for
+ * the internal callers asking for them in the Accept header. Both replace the default converters,
+ * which know nothing about HAL, so the binary documents keep the {@code _links} and
+ * {@code _embedded} layout of {@code application/hal+json}.
+ */
+@Configuration
+public class BinaryFormatConfig {
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+            Jackson2ObjectMapperBuilder objectMapperBuilder,
+            HalMediaTypeConfiguration halMediaTypeConfiguration
+    ) {
+        return new MappingJackson2SmileHttpMessageConverter(halMediaTypeConfiguration.configureObjectMapper(
+                objectMapperBuilder.factory(new SmileFactory()).build()));
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+            Jackson2ObjectMapperBuilder objectMapperBuilder,
+            HalMediaTypeConfiguration halMediaTypeConfiguration
+    ) {
+        return new MappingJackson2CborHttpMessageConverter(halMediaTypeConfiguration.configureObjectMapper(
+                objectMapperBuilder.factory(new CBORFactory()).build()));
+    }
+}
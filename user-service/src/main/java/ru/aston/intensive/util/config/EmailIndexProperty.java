@@ -0,0 +1,23 @@
+package ru.aston.intensive.util.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "email-index")
+@Getter
+@Setter
+public class EmailIndexProperty {
+
+    private long expectedInsertions = 1_000_000;
+    private double falsePositiveProbability = 0.01;
+    /**
+     * Full reload from the database, picks up the emails whose broadcast from another instance was lost.
+     */
+    private Duration rebuildInterval = Duration.ofMinutes(10);
+
+}
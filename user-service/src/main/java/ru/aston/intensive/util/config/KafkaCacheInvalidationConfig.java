@@ -0,0 +1,103 @@
+package ru.aston.intensive.util.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.LongDeserializer;
+import org.apache.kafka.common.serialization.LongSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import ru.aston.intensive.dto.UserCacheInvalidationEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Kafka wiring for the user cache invalidation broadcast. Every instance consumes
+ * the topic in its own consumer group, so each invalidation reaches all instances.
+ */
+@EnableKafka
+@Configuration
+public class KafkaCacheInvalidationConfig {
+
+    @Autowired
+    private KafkaProperty kafkaProperty;
+
+    @Value("${spring.application.name}")
+    private String applicationName;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Bean
+    public ProducerFactory<Long, UserCacheInvalidationEvent> cacheInvalidationProducerFactory(
+            ObjectMapper objectMapper
+    ) {
+        Map<String, Object> configProperties = new HashMap<>();
+        configProperties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperty.getBootstrapServers());
+
+        JsonSerializer<UserCacheInvalidationEvent> valueSerializer = new JsonSerializer<>(objectMapper);
+        valueSerializer.setAddTypeInfo(false);
+
+        return new DefaultKafkaProducerFactory<>(
+                configProperties,
+                new LongSerializer(),
+                valueSerializer
+        );
+    }
+
+    @Bean
+    public KafkaTemplate<Long, UserCacheInvalidationEvent> cacheInvalidationKafkaTemplate(
+            ProducerFactory<Long, UserCacheInvalidationEvent> cacheInvalidationProducerFactory
+    ) {
+        return new KafkaTemplate<>(cacheInvalidationProducerFactory);
+    }
+
+    @Bean
+    public ConsumerFactory<Long, UserCacheInvalidationEvent> cacheInvalidationConsumerFactory(
+            ObjectMapper objectMapper
+    ) {
+        Map<String, Object> propMap = new HashMap<>();
+        propMap.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperty.getBootstrapServers());
+        propMap.put(ConsumerConfig.GROUP_ID_CONFIG, applicationName + "-cache-" + UUID.randomUUID());
+        propMap.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+
+        JsonDeserializer<UserCacheInvalidationEvent> jsonDeserializer =
+                new JsonDeserializer<>(UserCacheInvalidationEvent.class, objectMapper);
+
+        return new DefaultKafkaConsumerFactory<>(
+                propMap,
+                new LongDeserializer(),
+                jsonDeserializer
+        );
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Long, UserCacheInvalidationEvent>
+    cacheInvalidationListenerContainerFactory(
+            ConsumerFactory<Long, UserCacheInvalidationEvent> cacheInvalidationConsumerFactory
+    ) {
+        var containerFactory = new ConcurrentKafkaListenerContainerFactory<Long, UserCacheInvalidationEvent>();
+        containerFactory.setConcurrency(1);
+        containerFactory.setConsumerFactory(cacheInvalidationConsumerFactory);
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor listenerTaskExecutor = new SimpleAsyncTaskExecutor("cache-invalidation-");
+            listenerTaskExecutor.setVirtualThreads(true);
+            containerFactory.getContainerProperties().setListenerTaskExecutor(listenerTaskExecutor);
+        }
+        return containerFactory;
+    }
+}
@@ -1,16 +1,22 @@
 package ru.aston.intensive.util.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 import ru.aston.intensive.dto.UserEvent;
-import ru.aston.intensive.enumerated.UserStatus;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -22,27 +28,58 @@ public class KafkaProducerConfig {
     private KafkaProperty kafkaProperty;
 
     @Bean
-    public ProducerFactory<UserStatus, UserEvent> producerFactory(
-            ObjectMapper objectMapper
+    public ProducerFactory<String, UserEvent> producerFactory(
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry
     ) {
         Map<String, Object> configProperties = new HashMap<>();
         configProperties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperty.getBootstrapServers());
 
-        JsonSerializer<UserStatus> keySerializer = new JsonSerializer<>(objectMapper);
-        keySerializer.setAddTypeInfo(false);
-        JsonSerializer<UserEvent> valueSerializer = new JsonSerializer<>(objectMapper);
-        valueSerializer.setAddTypeInfo(false);
+        KafkaProperty.Producer producer = kafkaProperty.getProducer();
+        configProperties.put(ProducerConfig.LINGER_MS_CONFIG, (int) producer.getLinger().toMillis());
+        configProperties.put(ProducerConfig.BATCH_SIZE_CONFIG, producer.getBatchSize());
+        configProperties.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, producer.getCompressionType());
+        configProperties.put(ProducerConfig.ACKS_CONFIG, producer.getAcks());
+        configProperties.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, producer.isEnableIdempotence());
+        configProperties.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, producer.getMaxBlock().toMillis());
 
-        return new DefaultKafkaProducerFactory<>(
+        DefaultKafkaProducerFactory<String, UserEvent> producerFactory = new DefaultKafkaProducerFactory<>(
                 configProperties,
-                keySerializer,
-                valueSerializer
+                new StringSerializer(),
+                jsonSerializer(objectMapper)
         );
+        producerFactory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return producerFactory;
+    }
+
+    /**
+     * Serializer of user event values, without type headers.
+     */
+    public static <T> JsonSerializer<T> jsonSerializer(ObjectMapper objectMapper) {
+        JsonSerializer<T> serializer = new JsonSerializer<>(objectMapper);
+        serializer.setAddTypeInfo(false);
+        return serializer;
+    }
+
+    @Bean
+    public KafkaAdmin kafkaAdmin() {
+        return new KafkaAdmin(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, kafkaProperty.getBootstrapServers()));
+    }
+
+    /**
+     * User events topic, created on startup unless it exists. Partitions of an existing topic are
+     * only ever added to, which moves the users of the added ones to other consumers.
+     */
+    @Bean
+    public NewTopic userEventsTopic() {
+        return TopicBuilder.name(kafkaProperty.getTopic())
+                .partitions(kafkaProperty.getTopicPartitions())
+                .build();
     }
 
     @Bean
-    public KafkaTemplate<UserStatus, UserEvent> kafkaTemplate(
-            ProducerFactory<UserStatus, UserEvent> producerFactory
+    public KafkaTemplate<String, UserEvent> kafkaTemplate(
+            ProducerFactory<String, UserEvent> producerFactory
     ) {
         return new KafkaTemplate<>(producerFactory);
     }
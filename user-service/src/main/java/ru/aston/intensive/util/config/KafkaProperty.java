@@ -5,6 +5,8 @@ import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 @Component
 @ConfigurationProperties(prefix = "kafka")
 @Getter
@@ -13,5 +15,29 @@ public class KafkaProperty {
 
     private String bootstrapServers;
     private String topic;
+    /**
+     * Partitions of the user events topic when it is created, one notification consumer reads
+     * each of them at most. Events of one user are keyed by email and stay in one partition.
+     */
+    private int topicPartitions = 3;
+    private String cacheInvalidationTopic;
+    private Producer producer = new Producer();
+
+    @Getter
+    @Setter
+    public static class Producer {
+
+        private Duration linger = Duration.ofMillis(10);
+        private int batchSize = 64 * 1024;
+        private String compressionType = "lz4";
+        private String acks = "all";
+        private boolean enableIdempotence = true;
+        private Duration ackTimeout = Duration.ofSeconds(10);
+        /**
+         * Longest a send blocks waiting for topic metadata or buffer space, the outbox relay holds
+         * its row locks and connection meanwhile. Kafka's own default is a minute.
+         */
+        private Duration maxBlock = Duration.ofSeconds(2);
 
+    }
 }
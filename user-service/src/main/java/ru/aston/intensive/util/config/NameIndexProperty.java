@@ -0,0 +1,25 @@
+package ru.aston.intensive.util.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "name-index")
+@Getter
+@Setter
+public class NameIndexProperty {
+
+    /**
+     * Changes kept aside of the sorted names before they are merged in.
+     */
+    private int mergeThreshold = 10_000;
+    /**
+     * Full reload from the database, picks up the changes made through other instances.
+     */
+    private Duration rebuildInterval = Duration.ofMinutes(10);
+
+}
@@ -0,0 +1,20 @@
+package ru.aston.intensive.util.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@ConfigurationProperties(prefix = "outbox")
+@Getter
+@Setter
+public class OutboxProperty {
+
+    private int batchSize = 500;
+    private Duration pollInterval = Duration.ofMillis(500);
+    private Duration sendTimeout = Duration.ofSeconds(10);
+
+}
@@ -0,0 +1,84 @@
+package ru.aston.intensive.util.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import ru.aston.intensive.util.datasource.ReadReplicaRoutingDataSource;
+import ru.aston.intensive.util.datasource.ReadYourWritesFilter;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the single datasource with the primary and replica pools behind
+ * {@link ReadReplicaRoutingDataSource}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "replica-datasource", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    public ReadReplicaRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                         DataSourceProperties dataSourceProperties,
+                                                         ReplicaDataSourceProperty replicaDataSourceProperty,
+                                                         MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReplicaDataSourceProperty.Replica> replicaProperties = replicaDataSourceProperty.getReplicas();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            String name = "replica-" + i;
+            replicas.put(name, replicaDataSource(name, replicaProperties.get(i), primaryDataSource,
+                    dataSourceProperties, meterRegistry));
+        }
+        return new ReadReplicaRoutingDataSource(primaryDataSource, replicas,
+                replicaDataSourceProperty.getHealthCheckTimeout());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(ReplicaDataSourceProperty replicaDataSourceProperty) {
+        return new ReadYourWritesFilter(replicaDataSourceProperty.getReadYourWritesWindow());
+    }
+
+    private static HikariDataSource replicaDataSource(String name,
+                                                      ReplicaDataSourceProperty.Replica replica,
+                                                      HikariDataSource primaryDataSource,
+                                                      DataSourceProperties dataSourceProperties,
+                                                      MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(replica.getUrl());
+        dataSource.setUsername(replica.getUsername() != null
+                ? replica.getUsername() : dataSourceProperties.determineUsername());
+        dataSource.setPassword(replica.getPassword() != null
+                ? replica.getPassword() : dataSourceProperties.determinePassword());
+        dataSource.setMaximumPoolSize(primaryDataSource.getMaximumPoolSize());
+        dataSource.setConnectionTimeout(primaryDataSource.getConnectionTimeout());
+        dataSource.setReadOnly(true);
+        dataSource.setInitializationFailTimeout(-1);
+        dataSource.setMetricRegistry(meterRegistry);
+        return dataSource;
+    }
+}
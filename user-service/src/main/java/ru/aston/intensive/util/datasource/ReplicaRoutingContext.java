@@ -0,0 +1,34 @@
+package ru.aston.intensive.util.datasource;
+
+/**
+ * Read-your-writes state of the current request. Outside a request nothing is
+ * tracked and read-only transactions always may go to a replica.
+ */
+public final class ReplicaRoutingContext {
+
+    private static final ThreadLocal<Boolean> PRIMARY_REQUIRED = new ThreadLocal<>();
+
+    private ReplicaRoutingContext() {
+    }
+
+    public static void begin(boolean primaryRequired) {
+        PRIMARY_REQUIRED.set(primaryRequired);
+    }
+
+    /**
+     * Sends the rest of the current request to the primary.
+     */
+    public static void markWrite() {
+        if (PRIMARY_REQUIRED.get() != null) {
+            PRIMARY_REQUIRED.set(Boolean.TRUE);
+        }
+    }
+
+    public static boolean isPrimaryRequired() {
+        return Boolean.TRUE.equals(PRIMARY_REQUIRED.get());
+    }
+
+    public static void clear() {
+        PRIMARY_REQUIRED.remove();
+    }
+}
@@ -15,6 +15,7 @@ public class UserMapper {
     }
 
     public static UserResponseDto entityToDto(UserEntity entity) {
-        return new UserResponseDto(entity.getName(), entity.getEmail(), entity.getAge());
+        return new UserResponseDto(entity.getId(), entity.getName(), entity.getEmail(), entity.getAge(),
+                entity.getVersion(), entity.getUpdatedAt());
     }
 }
@@ -0,0 +1,35 @@
+package ru.aston.intensive.benchmark;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the SQL Hibernate prepares on the current thread while an action runs,
+ * other threads are not recorded.
+ */
+class SqlCapture implements StatementInspector {
+
+    private final ThreadLocal<List<String>> statements = new ThreadLocal<>();
+
+    List<String> capture(Runnable action) {
+        List<String> captured = new ArrayList<>();
+        statements.set(captured);
+        try {
+            action.run();
+        } finally {
+            statements.remove();
+        }
+        return captured;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        List<String> captured = statements.get();
+        if (captured != null) {
+            captured.add(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,128 @@
+package ru.aston.intensive.benchmark;
+
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Simulates the blocking shape of a user-service write with sleeps, on the platform-thread Tomcat
+ * pool and on virtual threads: a query on a connection taken from a 20-connection pool, then a
+ * Kafka send that sometimes waits on the retry backoff. Like Hikari, the pool gives up after the
+ * connection timeout of the {@code virtual} profile, and such requests are counted as failed
+ * rather than as served. The numbers compare the two thread modes on this model only, they are
+ * not a throughput measurement of the service. Run with {@code -Dbenchmark=true}.
+ */
+@Log4j2
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ThreadModeComparisonTest {
+
+    private static final int REQUESTS = 20_000;
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int DB_POOL_SIZE = 20;
+    private static final Duration CONNECTION_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration QUERY_TIME = Duration.ofMillis(2);
+    private static final Duration KAFKA_SEND_TIME = Duration.ofMillis(20);
+    private static final Duration RETRY_BACKOFF = Duration.ofMillis(400);
+    private static final double RETRY_RATE = 0.05;
+
+    @Test
+    void simulate_platformAndVirtualThreads() throws Exception {
+        Result platform = run("platform", () -> Executors.newFixedThreadPool(TOMCAT_MAX_THREADS));
+        Result virtual = run("virtual", Executors::newVirtualThreadPerTaskExecutor);
+
+        log.info("{} requests, db pool {}, connection timeout {}, tomcat threads {}",
+                REQUESTS, DB_POOL_SIZE, CONNECTION_TIMEOUT, TOMCAT_MAX_THREADS);
+        log.info(platform);
+        log.info(virtual);
+        assertEquals(REQUESTS, platform.completed() + platform.failed());
+        assertEquals(REQUESTS, virtual.completed() + virtual.failed());
+        assertTrue(virtual.completed() >= platform.completed());
+    }
+
+    private Result run(String mode, Supplier<ExecutorService> executorSupplier) throws Exception {
+        Semaphore connectionPool = new Semaphore(DB_POOL_SIZE, true);
+        List<Future<Long>> latencies = new ArrayList<>(REQUESTS);
+        AtomicInteger failed = new AtomicInteger();
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = executorSupplier.get()) {
+            for (int i = 0; i < REQUESTS; i++) {
+                long submitted = System.nanoTime();
+                latencies.add(executor.submit(() -> {
+                    if (!handleRequest(connectionPool)) {
+                        failed.incrementAndGet();
+                        return -1L;
+                    }
+                    return System.nanoTime() - submitted;
+                }));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        long[] sorted = new long[latencies.size() - failed.get()];
+        int served = 0;
+        for (Future<Long> latency : latencies) {
+            if (latency.get() >= 0) {
+                sorted[served++] = latency.get();
+            }
+        }
+        Arrays.sort(sorted);
+        return new Result(mode, sorted.length, failed.get(),
+                sorted.length * 1_000_000_000.0 / elapsed,
+                percentileMillis(sorted, 0.5),
+                percentileMillis(sorted, 0.99));
+    }
+
+    /**
+     * @return {@code false} if no connection was free within the connection timeout
+     */
+    private boolean handleRequest(Semaphore connectionPool) throws InterruptedException {
+        if (!connectionPool.tryAcquire(CONNECTION_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        try {
+            Thread.sleep(QUERY_TIME);
+        } finally {
+            connectionPool.release();
+        }
+        Thread.sleep(KAFKA_SEND_TIME);
+        if (ThreadLocalRandom.current().nextDouble() < RETRY_RATE) {
+            Thread.sleep(RETRY_BACKOFF);
+        }
+        return true;
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        return sorted.length == 0 ? Double.NaN : sorted[(int) (sorted.length * percentile)] / 1_000_000.0;
+    }
+
+    /**
+     * @param completed requests that got a connection, throughput and latencies are theirs
+     * @param failed    requests that timed out waiting for a connection
+     */
+    private record Result(String mode, int completed, int failed, double throughput,
+                          double p50Millis, double p99Millis) {
+
+        @Override
+        public String toString() {
+            return String.format("%-8s completed=%d, failed=%d, completed throughput=%.0f req/s, "
+                    + "p50=%.1f ms, p99=%.1f ms", mode, completed, failed, throughput, p50Millis, p99Millis);
+        }
+    }
+}
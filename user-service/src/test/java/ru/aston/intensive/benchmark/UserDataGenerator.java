@@ -0,0 +1,79 @@
+package ru.aston.intensive.benchmark;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Grows the {@code users} table with synthetic users {@code user<n>@d<n % 1000>.scale.test}. Rows are
+ * generated inside Postgres with {@code generate_series}, in chunks, so tens of millions of
+ * rows don't travel through JDBC.
+ */
+@Log4j2
+class UserDataGenerator {
+
+    private static final long CHUNK_SIZE = 1_000_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Synthetic users are numbered {@code firstNumber..lastNumber}, all of them exist.
+     */
+    private long firstNumber;
+    private long lastNumber;
+
+    UserDataGenerator(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    long countUsers() {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM users", Long.class);
+    }
+
+    void growTo(long rows) {
+        long current = countUsers();
+        if (firstNumber == 0) {
+            firstNumber = current + 1;
+            lastNumber = current;
+        }
+        long started = System.nanoTime();
+        while (current < rows) {
+            long from = lastNumber + 1;
+            long to = lastNumber + Math.min(CHUNK_SIZE, rows - current);
+            jdbcTemplate.update("""
+                    INSERT INTO users (name, email, age, created_at)
+                    SELECT 'User ' || n, 'user' || n || '@d' || n % 1000 || '.scale.test', 18 + n % 60,
+                           now() - (n % 100000) * interval '1 minute'
+                    FROM generate_series(?::bigint, ?::bigint) AS n
+                    """, from, to);
+            current += to - from + 1;
+            lastNumber = to;
+        }
+        jdbcTemplate.execute("ANALYZE users");
+        log.info("users table has {} rows, generated in {} ms", current, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Email of a random synthetic user.
+     */
+    String randomEmail() {
+        return email(ThreadLocalRandom.current().nextLong(firstNumber, lastNumber + 1));
+    }
+
+    static String email(long number) {
+        return "user" + number + "@d" + number % 1000 + ".scale.test";
+    }
+
+    /**
+     * Plan Postgres chooses for the statement with these parameters, one plan node per line.
+     */
+    String explain(String sql, Object... parameters) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters));
+    }
+
+    void clearOutbox() {
+        jdbcTemplate.execute("TRUNCATE user_event_outbox");
+    }
+}
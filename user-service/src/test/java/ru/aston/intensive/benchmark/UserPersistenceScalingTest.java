@@ -0,0 +1,310 @@
+package ru.aston.intensive.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.aston.intensive.dto.UserSearchFilter;
+import ru.aston.intensive.entity.UserEntity;
+import ru.aston.intensive.repository.UserRepository;
+import ru.aston.intensive.service.UserEmailIndex;
+import ru.aston.intensive.service.UserService;
+import ru.aston.intensive.service.impl.BloomUserEmailIndex;
+import ru.aston.intensive.service.impl.SortedArrayUserNameIndex;
+import ru.aston.intensive.service.impl.UserServiceImpl;
+import ru.aston.intensive.util.config.EmailIndexProperty;
+import ru.aston.intensive.util.config.NameIndexProperty;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Latency and throughput of the user persistence paths while the table grows. For every
+ * dataset size and concurrency level each operation runs {@code scaling.operations} times
+ * and p50/p99/throughput go to {@code target/scaling/scaling-report-<time>.json}.
+ * <p>
+ * Run with {@code -Dbenchmark=true -Dtest=UserPersistenceScalingTest}, sizes and concurrency
+ * levels are set with e.g. {@code -Dscaling.sizes=1000000,10000000,50000000 -Dscaling.concurrency=1,8,32}.
+ * {@code findAll} loads the whole table and is only measured up to {@code scaling.find-all-max-rows}.
+ * At every size each search statement must be planned with its index.
+ */
+@Log4j2
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@DataJpaTest
+@Testcontainers
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UserServiceImpl.class, BloomUserEmailIndex.class, EmailIndexProperty.class,
+        SortedArrayUserNameIndex.class, NameIndexProperty.class})
+@TestPropertySource(properties = {
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.format_sql=false",
+        "spring.jpa.properties.hibernate.jdbc.batch_size=50",
+        "spring.datasource.hikari.maximum-pool-size=64"
+})
+class UserPersistenceScalingTest {
+
+    private static final long[] SIZES = longs(System.getProperty("scaling.sizes", "100000,1000000"));
+    private static final long[] CONCURRENCY = longs(System.getProperty("scaling.concurrency", "1,8,32"));
+    private static final int OPERATIONS = Integer.getInteger("scaling.operations", 2000);
+    private static final int WARMUP_OPERATIONS = Integer.getInteger("scaling.warmup-operations", 200);
+    private static final long FIND_ALL_MAX_ROWS = Long.getLong("scaling.find-all-max-rows", 1_000_000L);
+    private static final int FIND_ALL_OPERATIONS = 5;
+    private static final Path REPORT_DIR = Path.of(System.getProperty("scaling.report-dir", "target/scaling"));
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:17")
+            .withCommand("postgres", "-c", "max_connections=200", "-c", "shared_buffers=512MB");
+
+    @Autowired
+    UserService userService;
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    UserEmailIndex userEmailIndex;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    SqlCapture sqlCapture;
+
+    private UserDataGenerator generator;
+
+    @BeforeAll
+    static void checkSizes() {
+        assertFalse(SIZES.length == 0 || CONCURRENCY.length == 0, "no sizes or concurrency levels");
+        Arrays.sort(SIZES);
+    }
+
+    @Test
+    void scaling_findCreateUpdateDelete() throws Exception {
+        generator = new UserDataGenerator(dataSource);
+        List<Measurement> measurements = new ArrayList<>();
+
+        for (long rows : SIZES) {
+            generator.growTo(rows);
+            userEmailIndex.rebuild();
+            checkSearchPlans();
+            for (long concurrency : CONCURRENCY) {
+                measurements.addAll(measureAll(rows, (int) concurrency));
+                generator.clearOutbox();
+            }
+            assertEquals(rows, generator.countUsers());
+        }
+
+        writeReport(measurements);
+    }
+
+    private List<Measurement> measureAll(long rows, int concurrency) throws Exception {
+        List<Measurement> measurements = new ArrayList<>();
+        List<UserEntity> sample = sampleUsers(Math.min(OPERATIONS, rows));
+        Long[] createdIds = new Long[OPERATIONS];
+
+        measure("warmup", rows, concurrency, WARMUP_OPERATIONS,
+                i -> userService.findById(sample.get(i % sample.size()).getId()));
+
+        measurements.add(measure("findById", rows, concurrency, OPERATIONS,
+                i -> userService.findById(sample.get(i % sample.size()).getId())));
+        measurements.add(measure("findByEmail", rows, concurrency, OPERATIONS,
+                i -> userRepository.findByEmail(generator.randomEmail())));
+        measurements.add(measure("findPage", rows, concurrency, OPERATIONS,
+                i -> userService.findPage(sample.get(i % sample.size()).getId(), 100)));
+        if (rows <= FIND_ALL_MAX_ROWS) {
+            measurements.add(measure("findAll", rows, concurrency, FIND_ALL_OPERATIONS,
+                    i -> userService.findAll()));
+        }
+        LocalDateTime recent = LocalDateTime.now().minusMinutes(10);
+        measurements.add(measure("searchName", rows, concurrency, OPERATIONS, i -> userService.search(
+                new UserSearchFilter(sample.get(i % sample.size()).getName(), null, null, null, null, null),
+                null, 100)));
+        measurements.add(measure("searchAge", rows, concurrency, OPERATIONS, i -> userService.search(
+                new UserSearchFilter(null, 30, 31, null, null, null), sample.get(i % sample.size()).getId(), 100)));
+        measurements.add(measure("searchCreated", rows, concurrency, OPERATIONS, i -> userService.search(
+                new UserSearchFilter(null, null, null, recent, null, null), null, 100)));
+        measurements.add(measure("searchDomain", rows, concurrency, OPERATIONS, i -> userService.search(
+                new UserSearchFilter(null, null, null, null, null, emailDomain(sample.get(i % sample.size()))),
+                null, 100)));
+        measurements.add(measure("create", rows, concurrency, OPERATIONS, i -> createdIds[i] = userService.create(
+                UserEntity.builder()
+                        .name("Created " + i)
+                        .email("created-" + rows + "-" + concurrency + "-" + i + "@scale.test")
+                        .age(30)
+                        .build()).getId()));
+        measurements.add(measure("update", rows, concurrency, OPERATIONS, i -> {
+            UserEntity user = sample.get(i % sample.size());
+            userService.update(user.getId(), UserEntity.builder()
+                    .name("Updated " + i)
+                    .email(user.getEmail())
+                    .age(user.getAge())
+                    .build());
+        }));
+        measurements.add(measure("delete", rows, concurrency, OPERATIONS, i -> userService.delete(createdIds[i])));
+
+        measurements.forEach(log::info);
+        return measurements;
+    }
+
+    /**
+     * Every search has to be served by its index. The statement is the one Hibernate prepares for
+     * the search, captured from the session, and it is explained with the values Hibernate binds.
+     */
+    private void checkSearchPlans() {
+        LocalDateTime recent = LocalDateTime.now().minusMinutes(10);
+        checkSearchPlan("name prefix", "users_name_prefix_idx",
+                new UserSearchFilter("User 4242", null, null, null, null, null), null,
+                "user 4242%", 100);
+        // every age holds 1/60 of the users, a page of two ages is found sooner along the ids
+        checkSearchPlan("age range", "users_pkey",
+                new UserSearchFilter(null, 30, 31, null, null, null), 1000L,
+                1000L, 30, 31, 100);
+        checkSearchPlan("created range", "users_created_at_idx",
+                new UserSearchFilter(null, null, null, recent, null, null), null,
+                recent, 100);
+        checkSearchPlan("email domain", "users_email_domain_idx",
+                new UserSearchFilter(null, null, null, null, null, "D42.scale.test"), null,
+                "d42.scale.test", 100);
+    }
+
+    /**
+     * @param parameters values Hibernate binds to the search statement, in order
+     */
+    private void checkSearchPlan(String search, String index, UserSearchFilter filter, Long afterId,
+                                 Object... parameters) {
+        List<String> statements = sqlCapture.capture(() -> userService.search(filter, afterId, 100));
+        assertEquals(1, statements.size(), "search by " + search + " ran " + statements);
+        String plan = generator.explain(statements.get(0), parameters);
+        log.info("search by {}:\n{}\n{}", search, statements.get(0), plan);
+        assertFalse(plan.contains("Seq Scan on users"), "search by " + search + " scans the whole table");
+        assertTrue(plan.contains(index), "search by " + search + " doesn't use " + index);
+    }
+
+    private static String emailDomain(UserEntity user) {
+        return user.getEmail().substring(user.getEmail().indexOf('@') + 1);
+    }
+
+    /**
+     * Random users for the id based operations, the same sample for all operations of a round.
+     */
+    private List<UserEntity> sampleUsers(long size) {
+        List<UserEntity> sample = new ArrayList<>((int) size);
+        while (sample.size() < size) {
+            userRepository.findByEmail(generator.randomEmail()).ifPresent(sample::add);
+        }
+        return sample;
+    }
+
+    private Measurement measure(String operation, long rows, int concurrency, int operations,
+                                IntConsumer action) throws Exception {
+        long[] latencies = new long[operations];
+        AtomicInteger next = new AtomicInteger();
+        Callable<Void> worker = () -> {
+            for (int i = next.getAndIncrement(); i < operations; i = next.getAndIncrement()) {
+                long start = System.nanoTime();
+                action.accept(i);
+                latencies[i] = System.nanoTime() - start;
+            }
+            return null;
+        };
+
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newFixedThreadPool(concurrency)) {
+            for (Future<Void> future : executor.invokeAll(Collections.nCopies(concurrency, worker))) {
+                future.get();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new Measurement(operation, rows, concurrency, operations,
+                operations * 1_000_000_000.0 / elapsed,
+                latencies[operations / 2] / 1_000_000.0,
+                latencies[Math.min(operations - 1, (int) (operations * 0.99))] / 1_000_000.0);
+    }
+
+    private void writeReport(List<Measurement> measurements) throws IOException {
+        Instant finishedAt = Instant.now();
+        Files.createDirectories(REPORT_DIR);
+        Path report = REPORT_DIR.resolve("scaling-report-" + finishedAt.toEpochMilli() + ".json");
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(report.toFile(), new Report(
+                finishedAt.toString(),
+                postgresContainer.getDockerImageName(),
+                Runtime.getRuntime().availableProcessors(),
+                measurements));
+        log.info("scaling report written to {}", report.toAbsolutePath());
+    }
+
+    private static long[] longs(String values) {
+        return Arrays.stream(values.split(","))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .mapToLong(Long::parseLong)
+                .toArray();
+    }
+
+    @TestConfiguration
+    static class SqlCaptureConfig {
+
+        @Bean
+        SqlCapture sqlCapture() {
+            return new SqlCapture();
+        }
+
+        @Bean
+        HibernatePropertiesCustomizer sqlCaptureCustomizer(SqlCapture sqlCapture) {
+            return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, sqlCapture);
+        }
+    }
+
+    record Measurement(String operation, long rows, int concurrency, int operations,
+                       double throughput, double p50Millis, double p99Millis) {
+
+        @Override
+        public String toString() {
+            return String.format("%-12s rows=%-10d threads=%-3d throughput=%.0f op/s, p50=%.2f ms, p99=%.2f ms",
+                    operation, rows, concurrency, throughput, p50Millis, p99Millis);
+        }
+    }
+
+    record Report(String finishedAt, String database, int processors, List<Measurement> measurements) {
+    }
+}
@@ -1,39 +1,58 @@
 package ru.aston.intensive.controller;
 
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import org.junit.jupiter.api.Test;
 import org.mockito.BDDMockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.aston.intensive.dto.UserBatchItemResponseDto;
+import ru.aston.intensive.dto.UserNameSuggestionDto;
+import ru.aston.intensive.dto.UserPatchRequestDto;
 import ru.aston.intensive.dto.UserRequestDto;
 import ru.aston.intensive.dto.UserResponseDto;
+import ru.aston.intensive.dto.UserSearchFilter;
 import ru.aston.intensive.entity.UserEntity;
 import ru.aston.intensive.exception.EmailExistingException;
 import ru.aston.intensive.exception.UserNotFoundException;
+import ru.aston.intensive.exception.UserVersionMismatchException;
 import ru.aston.intensive.service.UserService;
 import ru.aston.intensive.util.assembler.UserEntityToModelAssembler;
+import ru.aston.intensive.util.config.BinaryFormatConfig;
 import ru.aston.intensive.util.mapper.UserMapper;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @ActiveProfiles("test")
 @WebMvcTest(
@@ -41,6 +60,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
         includeFilters = @ComponentScan.Filter(
                 type = FilterType.ASSIGNABLE_TYPE, classes = UserEntityToModelAssembler.class)
 )
+@Import(BinaryFormatConfig.class)
 @TestPropertySource(properties = {
         "spring.cloud.config.enabled=false",
         "eureka.client.enabled=false",
@@ -50,6 +70,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 class UserControllerImplTest {
 
     private static final String URI_START = "/api/users/";
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
 
     @Autowired
     private MockMvc mockMvc;
@@ -79,7 +100,7 @@ class UserControllerImplTest {
         );
 
         BDDMockito.given(userService.findAll())
-                .willReturn(userEntityList);
+                .willReturn(userEntityList.stream().map(UserMapper::entityToDto).toList());
 
         mockMvc.perform(get(URI_START))
                 .andExpect(status().isOk())
@@ -88,20 +109,294 @@ class UserControllerImplTest {
                 .andExpect(jsonPath("$[1].name").value("Petua"));
     }
 
+    @Test
+    void findPage_whenPageIsFull_nextLink() throws Exception {
+        List<UserEntity> userEntityList = List.of(
+                getUserWithId(1L, "first@test.org"),
+                getUserWithId(2L, "second@test.org")
+        );
+
+        BDDMockito.given(userService.findPage(null, 2))
+                .willReturn(userEntityList);
+
+        mockMvc.perform(get(URI_START + "page").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userResponseDtoList", hasSize(2)))
+                .andExpect(jsonPath("$._links.next.href", endsWith("/api/users/page?after=2&size=2")));
+    }
+
+    @Test
+    void findPage_whenLastPage_noNextLink() throws Exception {
+        BDDMockito.given(userService.findPage(eq(2L), anyInt()))
+                .willReturn(List.of(getUserWithId(3L, "third@test.org")));
+
+        mockMvc.perform(get(URI_START + "page").param("after", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userResponseDtoList", hasSize(1)))
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+
+        verify(userService).findPage(2L, 100);
+    }
+
+    @Test
+    void search_whenPageIsFull_nextLinkKeepsFilters() throws Exception {
+        UserSearchFilter filter = new UserSearchFilter("Vas", 18, 40, null, null, "test.org");
+        BDDMockito.given(userService.search(filter, null, 2))
+                .willReturn(List.of(getUserWithId(1L, "first@test.org"), getUserWithId(2L, "second@test.org")));
+
+        mockMvc.perform(get(URI_START + "search?namePrefix=Vas&minAge=18&maxAge=40&emailDomain=test.org&size=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userResponseDtoList", hasSize(2)))
+                .andExpect(jsonPath("$._links.next.href", endsWith(
+                        "/api/users/search?namePrefix=Vas&minAge=18&maxAge=40&emailDomain=test.org&after=2&size=2")));
+    }
+
+    @Test
+    void search_whenCreatedRangeAndLastPage_noNextLink() throws Exception {
+        UserSearchFilter filter = new UserSearchFilter(null, null, null,
+                LocalDateTime.of(2025, 1, 1, 0, 0), LocalDateTime.of(2025, 2, 1, 0, 0), null);
+        BDDMockito.given(userService.search(filter, 5L, 100))
+                .willReturn(List.of(getUserWithId(6L, "sixth@test.org")));
+
+        mockMvc.perform(get(URI_START + "search")
+                        .param("createdFrom", "2025-01-01T00:00:00")
+                        .param("createdTo", "2025-02-01T00:00:00")
+                        .param("after", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$._embedded.userResponseDtoList", hasSize(1)))
+                .andExpect(jsonPath("$._links.next").doesNotExist());
+    }
+
+    @Test
+    void search_whenEmailDomainHasAt_badRequest() throws Exception {
+        mockMvc.perform(get(URI_START + "search").param("emailDomain", "@test.org"))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, never()).search(any(), any(), anyInt());
+    }
+
+    @Test
+    void autocomplete_whenLimitIsTooLarge_clampedLimit() throws Exception {
+        BDDMockito.given(userService.autocomplete("va", 20))
+                .willReturn(List.of(new UserNameSuggestionDto(1L, "Vasua"), new UserNameSuggestionDto(2L, "Valera")));
+
+        mockMvc.perform(get(URI_START + "autocomplete").param("q", "va").param("limit", "500"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].name").value("Valera"));
+    }
+
+    @Test
+    void stream_whenOk_userPerLine() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<UserEntity> consumer = invocation.getArgument(0);
+            consumer.accept(getUserWithId(1L, "first@test.org"));
+            consumer.accept(getUserWithId(2L, "second@test.org"));
+            return null;
+        }).given(userService).streamAll(any());
+
+        MvcResult mvcResult = mockMvc.perform(get(URI_START + "stream")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(streamedUser(1L, "first@test.org") + "\n"
+                        + streamedUser(2L, "second@test.org") + "\n"));
+    }
+
     @Test
     void find_whenIdExist_userDto() throws Exception {
         UserEntity existUser = getExistUser();
 
         BDDMockito.given(userService.findById(existUser.getId()))
-                .willReturn(existUser);
+                .willReturn(UserMapper.entityToDto(existUser));
 
         mockMvc.perform(get(URI_START + existUser.getId()))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(jsonPath("$.id").doesNotExist())
+                .andExpect(jsonPath("$._links.self.href", endsWith("/api/users/" + existUser.getId())))
                 .andExpect(jsonPath("$.name").value(existUser.getName()))
                 .andExpect(jsonPath("$.email").value(existUser.getEmail()))
                 .andExpect(jsonPath("$.age").value(existUser.getAge()));
     }
 
+    @Test
+    void find_whenETagMatches_status304WithoutBody() throws Exception {
+        UserEntity existUser = getExistUser();
+
+        BDDMockito.given(userService.findById(existUser.getId()))
+                .willReturn(UserMapper.entityToDto(existUser));
+
+        mockMvc.perform(get(URI_START + existUser.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void find_whenETagIsOutdated_status200() throws Exception {
+        UserEntity existUser = getExistUser();
+
+        BDDMockito.given(userService.findById(existUser.getId()))
+                .willReturn(UserMapper.entityToDto(existUser));
+
+        mockMvc.perform(get(URI_START + existUser.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    @Test
+    void find_whenNotModifiedSince_status304() throws Exception {
+        UserEntity existUser = getExistUser();
+
+        BDDMockito.given(userService.findById(existUser.getId()))
+                .willReturn(UserMapper.entityToDto(existUser));
+
+        mockMvc.perform(get(URI_START + existUser.getId())
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, "Thu, 02 Jan 2025 13:00:00 GMT"))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void find_whenAcceptCbor_halDocumentInCbor() throws Exception {
+        UserEntity existUser = getExistUser();
+
+        BDDMockito.given(userService.findById(existUser.getId()))
+                .willReturn(UserMapper.entityToDto(existUser));
+
+        MvcResult result = mockMvc.perform(get(URI_START + existUser.getId())
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        JsonNode user = new CBORMapper().readTree(result.getResponse().getContentAsByteArray());
+        assertEquals(existUser.getName(), user.path("name").asText());
+        assertEquals(existUser.getEmail(), user.path("email").asText());
+        assertTrue(user.path("_links").path("self").path("href").asText()
+                .endsWith("/api/users/" + existUser.getId()));
+    }
+
+    @Test
+    void findPage_whenAcceptSmile_halDocumentInSmile() throws Exception {
+        BDDMockito.given(userService.findPage(null, 2))
+                .willReturn(List.of(getUserWithId(1L, "first@test.org"), getUserWithId(2L, "second@test.org")));
+
+        MvcResult result = mockMvc.perform(get(URI_START + "page").param("size", "2")
+                        .accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn();
+
+        JsonNode page = new SmileMapper().readTree(result.getResponse().getContentAsByteArray());
+        assertEquals(2, page.path("_embedded").path("userResponseDtoList").size());
+        assertTrue(page.path("_links").path("next").path("href").asText()
+                .endsWith("/api/users/page?after=2&size=2"));
+    }
+
+    @Test
+    void patch_whenIfMatchVersion_patchedWithNewETag() throws Exception {
+        UserEntity patchedUser = getExistUser();
+        patchedUser.setVersion(4L);
+
+        BDDMockito.given(userService.patch(1L, new UserPatchRequestDto(null, null, 31), 3L))
+                .willReturn(UserMapper.entityToDto(patchedUser));
+
+        mockMvc.perform(patch(URI_START + 1)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"age\": 31}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(jsonPath("$.email").value(patchedUser.getEmail()));
+    }
+
+    @Test
+    void patch_whenVersionIsOutdated_status412() throws Exception {
+        BDDMockito.given(userService.patch(1L, new UserPatchRequestDto("Vasilii", null, null), 2L))
+                .willThrow(new UserVersionMismatchException("User with id = 1 was changed, expected version = 2"));
+
+        mockMvc.perform(patch(URI_START + 1)
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Vasilii\"}"))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.status").value(412));
+    }
+
+    @Test
+    void patch_whenWeakETag_status412WithoutUpdate() throws Exception {
+        mockMvc.perform(patch(URI_START + 1)
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Vasilii\"}"))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(userService, never()).patch(anyLong(), any(), any());
+    }
+
+    @Test
+    void patch_whenIfMatchMissing_status428WithoutUpdate() throws Exception {
+        mockMvc.perform(patch(URI_START + 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Vasilii\"}"))
+                .andExpect(status().isPreconditionRequired())
+                .andExpect(jsonPath("$.status").value(428));
+
+        verify(userService, never()).patch(anyLong(), any(), any());
+    }
+
+    @Test
+    void patch_whenIfMatchAny_patchedWithoutVersion() throws Exception {
+        UserEntity patchedUser = getExistUser();
+        BDDMockito.given(userService.patch(1L, new UserPatchRequestDto("Vasilii", null, null), null))
+                .willReturn(UserMapper.entityToDto(patchedUser));
+
+        mockMvc.perform(patch(URI_START + 1)
+                        .header(HttpHeaders.IF_MATCH, "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"Vasilii\"}"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void patch_whenBlankName_status400() throws Exception {
+        mockMvc.perform(patch(URI_START + 1)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\": \"   \"}"))
+                .andExpect(status().isBadRequest());
+
+        verify(userService, never()).patch(anyLong(), any(), any());
+    }
+
+    @Test
+    void checkEmail_whenEmailExist_status200() throws Exception {
+        BDDMockito.given(userService.existsByEmail("vasua@test.org"))
+                .willReturn(true);
+
+        mockMvc.perform(head(URI_START + "email/vasua@test.org"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void checkEmail_whenEmailNotExist_status404NotFound() throws Exception {
+        BDDMockito.given(userService.existsByEmail("free@test.org"))
+                .willReturn(false);
+
+        mockMvc.perform(head(URI_START + "email/free@test.org"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void create_whenOk() throws Exception {
         UserRequestDto notExistUser = getNotExistUser();
@@ -162,7 +457,7 @@ class UserControllerImplTest {
 
     @Test
     void update_whenSendUserIncorrect_status400BadRequestAndErrors() throws Exception {
-        UserEntity invalidUser = new UserEntity(1L, "a", "invalidEmail", 1, LocalDateTime.now());
+        UserEntity invalidUser = new UserEntity(1L, "a", "invalidEmail", 1, LocalDateTime.now(), LocalDateTime.now(), 0L);
         UserResponseDto sendUser = UserMapper.entityToDto(invalidUser);
 
         mockMvc.perform(put(URI_START + invalidUser.getId())
@@ -199,6 +494,63 @@ class UserControllerImplTest {
         verify(userService).delete(deletedUser.getId());
     }
 
+    @Test
+    void createAll_whenSomeUsersInvalid_resultPerItem() throws Exception {
+        List<UserRequestDto> users = List.of(
+                getNotExistUser(),
+                new UserRequestDto("a", "invalidEmail", 1),
+                new UserRequestDto("Olya", "olya@olya.org", 20)
+        );
+
+        BDDMockito.given(userService.createAll(anyList()))
+                .willReturn(List.of(
+                        new UserBatchItemResponseDto(0, 1L, 201, null),
+                        new UserBatchItemResponseDto(1, null, 409, "User already exist with email = olya@olya.org")
+                ));
+
+        mockMvc.perform(post(URI_START + "batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(users)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].message", matchesPattern(".+")))
+                .andExpect(jsonPath("$[2].index").value(2))
+                .andExpect(jsonPath("$[2].status").value(409));
+    }
+
+    @Test
+    void createAll_whenBatchTooLarge_status400BadRequest() throws Exception {
+        List<UserRequestDto> users = Collections.nCopies(UserController.MAX_BATCH_SIZE + 1, getNotExistUser());
+
+        mockMvc.perform(post(URI_START + "batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(users)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message", matchesPattern(".+")));
+
+        verify(userService, never()).createAll(anyList());
+    }
+
+    @Test
+    void deleteAll_whenOk_resultPerId() throws Exception {
+        BDDMockito.given(userService.deleteAll(List.of(1L, 2L)))
+                .willReturn(List.of(
+                        new UserBatchItemResponseDto(0, 1L, 204, null),
+                        new UserBatchItemResponseDto(1, 2L, 404, "User not exist with id = 2")
+                ));
+
+        mockMvc.perform(delete(URI_START + "batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value(204))
+                .andExpect(jsonPath("$[1].status").value(404));
+    }
+
     private UserEntity getExistUser() {
         return UserEntity.builder()
                 .id(1L)
@@ -206,6 +558,26 @@ class UserControllerImplTest {
                 .email("vasua@test.org")
                 .age(30)
                 .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.of(2025, 1, 1, 12, 0))
+                .version(3L)
+                .build();
+    }
+
+    private static String streamedUser(long id, String email) {
+        String self = "{\"href\":\"http://localhost/api/users/" + id + "\"}";
+        String collection = "{\"href\":\"http://localhost/api/users/\"}";
+        return "{\"name\":\"User" + id + "\",\"email\":\"" + email + "\",\"age\":30,\"_links\":{"
+                + "\"self\":" + self + ",\"create\":" + collection + ",\"update\":" + self
+                + ",\"delete\":" + self + ",\"collection\":" + collection + "}}";
+    }
+
+    private UserEntity getUserWithId(long id, String email) {
+        return UserEntity.builder()
+                .id(id)
+                .name("User" + id)
+                .email(email)
+                .age(30)
+                .createdAt(LocalDateTime.now())
                 .build();
     }
 
@@ -0,0 +1,83 @@
+package ru.aston.intensive.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.aston.intensive.entity.UserEventOutboxEntity;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@Testcontainers
+@ActiveProfiles("test")
+@TestPropertySource(properties = {
+        "spring.cloud.config.enabled=false",
+        "eureka.client.enabled=false"
+})
+class UserEventOutboxRepositoryTests {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgresContainer = new PostgreSQLContainer<>("postgres:17");
+
+    @Autowired
+    UserEventOutboxRepository outboxRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void lockNextBatch_whenIdsOfOtherInstanceLower_insertOrder() {
+        insert(100L, "CREATED", "first@example.com");
+        insert(51L, "DELETED", "first@example.com");
+        insert(60L, "CREATED", "second@example.com");
+
+        List<UserEventOutboxEntity> batch = outboxRepository.lockNextBatch(10);
+
+        assertEquals(List.of(100L, 51L, 60L), batch.stream().map(UserEventOutboxEntity::getId).toList());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void lockNextBatch_whenOlderEventOfEmailLockedElsewhere_laterEventLeftOut() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        insert(1L, "CREATED", "first@example.com");
+        insert(2L, "DELETED", "first@example.com");
+        insert(3L, "CREATED", "second@example.com");
+        try {
+            List<Long> otherRelayBatch = transactionTemplate.execute(status -> {
+                assertEquals(1L, outboxRepository.lockNextBatch(1).get(0).getId());
+                return CompletableFuture.supplyAsync(() -> transactionTemplate.execute(otherStatus ->
+                        outboxRepository.lockNextBatch(10).stream().map(UserEventOutboxEntity::getId).toList()))
+                        .join();
+            });
+
+            assertEquals(List.of(3L), otherRelayBatch);
+        } finally {
+            jdbcTemplate.update("DELETE FROM user_event_outbox");
+        }
+    }
+
+    private void insert(long id, String action, String email) {
+        jdbcTemplate.update("INSERT INTO user_event_outbox (id, event_id, action, email) VALUES (?, ?, ?, ?)",
+                id, UUID.randomUUID(), action, email);
+    }
+}
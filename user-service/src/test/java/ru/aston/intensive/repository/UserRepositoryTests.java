@@ -3,15 +3,26 @@ package ru.aston.intensive.repository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.aston.intensive.dto.UserDeleteResult;
+import ru.aston.intensive.dto.UserPatchResult;
+import ru.aston.intensive.dto.UserResponseDto;
+import ru.aston.intensive.dto.UserSearchFilter;
 import ru.aston.intensive.entity.UserEntity;
+import ru.aston.intensive.util.mapper.UserMapper;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -50,4 +61,191 @@ class UserRepositoryTests {
 
         assertTrue(findUser.isEmpty());
     }
+
+    @Test
+    void findDtoById_whenIdExist_projectedDto() {
+        UserEntity user = userRepository.findByEmail("joshua.bloch@example.com").orElseThrow();
+
+        Optional<UserResponseDto> userDto = userRepository.findDtoById(user.getId());
+
+        assertTrue(userDto.isPresent());
+        assertEquals(UserMapper.entityToDto(user),
+                userDto.get());
+    }
+
+    @Test
+    void insertIfEmailFree_whenEmailFree_inserted() {
+        Optional<UserEntity> inserted = userRepository.insertIfEmailFree("Kent Beck", "kent.beck@example.com", 64);
+
+        assertTrue(inserted.isPresent());
+        assertTrue(inserted.get().getId() != null);
+        assertEquals(0L, inserted.get().getVersion());
+        assertEquals(inserted, userRepository.findByEmail("kent.beck@example.com"));
+    }
+
+    @Test
+    void insertIfEmailFree_whenEmailTaken_emptyAndNotInserted() {
+        long count = userRepository.count();
+
+        Optional<UserEntity> inserted = userRepository.insertIfEmailFree("Joshua", "joshua.bloch@example.com", 30);
+
+        assertTrue(inserted.isEmpty());
+        assertEquals(count, userRepository.count());
+    }
+
+    @Test
+    void insertIfEmailFree_mixedWithBatchedSaves_idsDoNotCollide() {
+        UserEntity saved = userRepository.saveAndFlush(UserEntity.builder()
+                .name("Saved").email("saved@example.com").age(30).build());
+        UserEntity inserted = userRepository.insertIfEmailFree("Inserted", "inserted@example.com", 30).orElseThrow();
+        UserEntity savedNext = userRepository.saveAndFlush(UserEntity.builder()
+                .name("Saved next").email("saved.next@example.com").age(30).build());
+
+        assertEquals(3, Set.of(saved.getId(), inserted.getId(), savedNext.getId()).size());
+    }
+
+    @Test
+    void patch_whenVersionMatches_onlySentFieldsChanged() {
+        UserEntity user = userRepository.findByEmail("bruce.eckel@example.com").orElseThrow();
+
+        Optional<UserPatchResult> patched = userRepository.patch(user.getId(), null, "bruce@example.com", 56,
+                user.getVersion());
+
+        assertTrue(patched.isPresent());
+        assertEquals(user.getName(), patched.get().getName());
+        assertEquals("bruce@example.com", patched.get().getEmail());
+        assertEquals(56, patched.get().getAge());
+        assertEquals(user.getVersion() + 1, patched.get().getVersion());
+        assertEquals("bruce.eckel@example.com", patched.get().getOldEmail());
+        assertTrue(patched.get().getUpdatedAt() != null);
+    }
+
+    @Test
+    void patch_whenVersionIsOutdated_empty() {
+        UserEntity user = userRepository.findByEmail("bruce.eckel@example.com").orElseThrow();
+
+        Optional<UserPatchResult> patched = userRepository.patch(user.getId(), "Bruce", null, null,
+                user.getVersion() + 1);
+
+        assertTrue(patched.isEmpty());
+    }
+
+    @Test
+    void patch_whenNoVersion_patchedUnconditionally() {
+        UserEntity user = userRepository.findByEmail("bruce.eckel@example.com").orElseThrow();
+
+        Optional<UserPatchResult> patched = userRepository.patch(user.getId(), "Bruce", null, null, null);
+
+        assertTrue(patched.isPresent());
+        assertEquals("Bruce", patched.get().getName());
+        assertEquals(user.getEmail(), patched.get().getEmail());
+    }
+
+    @Test
+    void deleteReturningEmail_whenIdExist_deletedAndEmailReturned() {
+        UserEntity user = userRepository.findByEmail("bruce.eckel@example.com").orElseThrow();
+
+        Optional<String> deletedEmail = userRepository.deleteReturningEmail(user.getId());
+
+        assertEquals(Optional.of(user.getEmail()), deletedEmail);
+        assertTrue(userRepository.findDtoById(user.getId()).isEmpty());
+    }
+
+    @Test
+    void deleteReturningEmail_whenIdNotExist_empty() {
+        assertTrue(userRepository.deleteReturningEmail(-1L).isEmpty());
+    }
+
+    @Test
+    void deleteAllReturningEmail_whenSomeIdsExist_onlyExistingReturned() {
+        UserEntity user = userRepository.findByEmail("joshua.bloch@example.com").orElseThrow();
+        long count = userRepository.count();
+
+        List<UserDeleteResult> deleted = userRepository.deleteAllReturningEmail(Set.of(user.getId(), -1L));
+
+        assertEquals(1, deleted.size());
+        assertEquals(user.getId(), deleted.getFirst().getId());
+        assertEquals(user.getEmail(), deleted.getFirst().getEmail());
+        assertEquals(count - 1, userRepository.count());
+    }
+
+    @Test
+    void findAllDtos_whenOk_allUsers() {
+        assertEquals(userRepository.count(), userRepository.findAllDtos().size());
+    }
+
+    @Test
+    void search_whenNamePrefix_caseInsensitive() {
+        List<UserEntity> found = search(new UserSearchFilter("bR", null, null, null, null, null), null);
+
+        assertEquals(List.of("bruce.eckel@example.com"), found.stream().map(UserEntity::getEmail).toList());
+    }
+
+    @Test
+    void search_whenNamePrefixHasWildcards_matchedLiterally() {
+        assertTrue(search(new UserSearchFilter("%", null, null, null, null, null), null).isEmpty());
+        assertTrue(search(new UserSearchFilter("_ruce", null, null, null, null, null), null).isEmpty());
+    }
+
+    @Test
+    void search_whenAgeRangeAndAfter_nextUsersInIdOrder() {
+        UserSearchFilter filter = new UserSearchFilter(null, 40, 70, null, null, null);
+
+        List<UserEntity> firstPage = search(filter, null);
+        List<UserEntity> secondPage = search(filter, firstPage.getFirst().getId());
+
+        assertEquals(List.of("joshua.bloch@example.com", "bruce.eckel@example.com"),
+                firstPage.stream().map(UserEntity::getEmail).toList());
+        assertEquals(firstPage.subList(1, 2), secondPage);
+    }
+
+    @Test
+    void search_whenCreatedRange_onlyCreatedInRange() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertEquals(3, search(new UserSearchFilter(null, null, null, now.minusDays(1), now.plusDays(1), null),
+                null).size());
+        assertTrue(search(new UserSearchFilter(null, null, null, now.plusDays(1), null, null), null).isEmpty());
+    }
+
+    @Test
+    void search_whenEmailDomain_caseInsensitive() {
+        assertEquals(3, search(new UserSearchFilter(null, null, null, null, null, "EXAMPLE.com"), null).size());
+        assertTrue(search(new UserSearchFilter(null, null, null, null, null, "example.org"), null).isEmpty());
+    }
+
+    @Test
+    void findExistingEmails_whenSomeEmailsExist_onlyExisting() {
+        List<String> existingEmails = userRepository.findExistingEmails(
+                List.of("joshua.bloch@example.com", "bruce.eckel@example.com", "notExist@email.com"));
+
+        assertEquals(2, existingEmails.size());
+        assertTrue(existingEmails.containsAll(List.of("joshua.bloch@example.com", "bruce.eckel@example.com")));
+    }
+
+    @Test
+    void findByIdGreaterThan_whenLimited_nextIdsInOrder() {
+        List<UserEntity> firstPage = userRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2));
+        List<UserEntity> secondPage = userRepository.findByIdGreaterThanOrderByIdAsc(
+                firstPage.getLast().getId(), Limit.of(2));
+
+        assertEquals(2, firstPage.size());
+        assertEquals(1, secondPage.size());
+        assertTrue(firstPage.getLast().getId() < secondPage.getFirst().getId());
+    }
+
+    @Test
+    void streamAll_whenOk_allUsersInIdOrder() {
+        try (Stream<UserEntity> users = userRepository.streamAll()) {
+            List<Long> ids = users.map(UserEntity::getId).toList();
+
+            assertEquals(3, ids.size());
+            assertEquals(ids.stream().sorted().toList(), ids);
+        }
+    }
+
+    private List<UserEntity> search(UserSearchFilter filter, Long afterId) {
+        return userRepository.findBy(UserSpecifications.matching(filter, afterId),
+                query -> query.sortBy(Sort.by("id")).limit(10).all());
+    }
 }
@@ -0,0 +1,125 @@
+package ru.aston.intensive.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import ru.aston.intensive.dto.UserNameChangedEvent;
+import ru.aston.intensive.dto.UserNameSuggestionDto;
+import ru.aston.intensive.repository.UserRepository;
+import ru.aston.intensive.service.impl.SortedArrayUserNameIndex;
+import ru.aston.intensive.util.config.NameIndexProperty;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortedArrayUserNameIndexTest {
+
+    private final UserRepository userRepository = Mockito.mock(UserRepository.class);
+    private final NameIndexProperty nameIndexProperty = new NameIndexProperty();
+
+    private UserNameIndex userNameIndex;
+
+    @BeforeEach
+    public void init() {
+        userNameIndex = new SortedArrayUserNameIndex(userRepository, nameIndexProperty);
+        BDDMockito.given(userRepository.streamAllNames()).willReturn(Stream.of(
+                new UserNameSuggestionDto(3L, "anna"),
+                new UserNameSuggestionDto(1L, "Boris"),
+                new UserNameSuggestionDto(2L, "Anna"),
+                new UserNameSuggestionDto(4L, "Anatoly"),
+                new UserNameSuggestionDto(5L, "Андрей")));
+        userNameIndex.rebuild();
+    }
+
+    @Test
+    public void complete_whenRebuilt_caseInsensitiveOrderedByNameAndId() {
+        assertEquals(List.of(
+                        new UserNameSuggestionDto(4L, "Anatoly"),
+                        new UserNameSuggestionDto(2L, "Anna"),
+                        new UserNameSuggestionDto(3L, "anna")),
+                userNameIndex.complete("AN", 10));
+        assertEquals(List.of(new UserNameSuggestionDto(5L, "Андрей")), userNameIndex.complete("анд", 10));
+        assertTrue(userNameIndex.complete("Z", 10).isEmpty());
+    }
+
+    @Test
+    public void complete_whenLimited_firstUsersOnly() {
+        assertEquals(List.of(new UserNameSuggestionDto(4L, "Anatoly"), new UserNameSuggestionDto(2L, "Anna")),
+                userNameIndex.complete("a", 2));
+    }
+
+    @Test
+    public void put_whenNewAndRenamedUsers_mergedInOrder() {
+        userNameIndex.put(6L, "Anastasia");
+        userNameIndex.put(2L, "Boris");
+        userNameIndex.put(6L, "Anastasiya");
+
+        assertEquals(List.of(
+                        new UserNameSuggestionDto(6L, "Anastasiya"),
+                        new UserNameSuggestionDto(4L, "Anatoly"),
+                        new UserNameSuggestionDto(3L, "anna")),
+                userNameIndex.complete("an", 10));
+        assertEquals(List.of(new UserNameSuggestionDto(1L, "Boris"), new UserNameSuggestionDto(2L, "Boris")),
+                userNameIndex.complete("bor", 10));
+    }
+
+    @Test
+    public void onUserNameChanged_whenRenamedAndDeleted_indexUpdated() {
+        userNameIndex.onUserNameChanged(new UserNameChangedEvent(1L, "Anastasia"));
+        userNameIndex.onUserNameChanged(new UserNameChangedEvent(4L, null));
+
+        assertEquals(List.of(
+                        new UserNameSuggestionDto(1L, "Anastasia"),
+                        new UserNameSuggestionDto(2L, "Anna"),
+                        new UserNameSuggestionDto(3L, "anna")),
+                userNameIndex.complete("an", 10));
+        assertTrue(userNameIndex.complete("bor", 10).isEmpty());
+    }
+
+    @Test
+    public void remove_whenSortedOrAddedUser_notSuggested() {
+        userNameIndex.put(6L, "Anastasia");
+
+        userNameIndex.remove(6L);
+        userNameIndex.remove(4L);
+
+        assertEquals(List.of(new UserNameSuggestionDto(2L, "Anna"), new UserNameSuggestionDto(3L, "anna")),
+                userNameIndex.complete("an", 10));
+    }
+
+    @Test
+    public void put_whenMergeThresholdReached_sameSuggestions() {
+        nameIndexProperty.setMergeThreshold(2);
+
+        userNameIndex.put(6L, "Anastasia");
+        userNameIndex.remove(3L);
+        userNameIndex.put(7L, "Bob");
+
+        assertEquals(List.of(
+                        new UserNameSuggestionDto(6L, "Anastasia"),
+                        new UserNameSuggestionDto(4L, "Anatoly"),
+                        new UserNameSuggestionDto(2L, "Anna")),
+                userNameIndex.complete("an", 10));
+        assertEquals(List.of(new UserNameSuggestionDto(7L, "Bob"), new UserNameSuggestionDto(1L, "Boris")),
+                userNameIndex.complete("bo", 10));
+    }
+
+    @Test
+    public void rebuild_whenChangedDuringScan_changesKept() {
+        BDDMockito.given(userRepository.streamAllNames()).willAnswer(invocation -> {
+            userNameIndex.put(6L, "Anastasia");
+            userNameIndex.remove(1L);
+            return Stream.of(new UserNameSuggestionDto(1L, "Boris"), new UserNameSuggestionDto(2L, "Anna"));
+        });
+
+        userNameIndex.rebuild();
+
+        assertEquals(List.of(new UserNameSuggestionDto(6L, "Anastasia"), new UserNameSuggestionDto(2L, "Anna")),
+                userNameIndex.complete("an", 10));
+        assertTrue(userNameIndex.complete("bo", 10).isEmpty());
+    }
+}
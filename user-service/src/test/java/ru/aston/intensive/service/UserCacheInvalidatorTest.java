@@ -0,0 +1,79 @@
+package ru.aston.intensive.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import ru.aston.intensive.dto.UserCacheInvalidationEvent;
+import ru.aston.intensive.entity.UserEntity;
+import ru.aston.intensive.service.impl.UserCacheInvalidatorImpl;
+import ru.aston.intensive.util.config.CacheConfig;
+import ru.aston.intensive.util.config.KafkaProperty;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class UserCacheInvalidatorTest {
+
+    private static final String TOPIC = "user-cache-invalidation";
+
+    private final CacheManager cacheManager =
+            new ConcurrentMapCacheManager(CacheConfig.USERS_BY_ID, CacheConfig.USERS_BY_EMAIL);
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<Long, UserCacheInvalidationEvent> kafkaTemplate = Mockito.mock(KafkaTemplate.class);
+
+    private final UserEmailIndex userEmailIndex = Mockito.mock(UserEmailIndex.class);
+
+    private UserCacheInvalidator cacheInvalidator;
+
+    @BeforeEach
+    public void init() {
+        KafkaProperty kafkaProperty = new KafkaProperty();
+        kafkaProperty.setCacheInvalidationTopic(TOPIC);
+        cacheInvalidator = new UserCacheInvalidatorImpl(cacheManager, kafkaProperty, kafkaTemplate,
+                userEmailIndex);
+
+        UserEntity user = UserEntity.builder().id(1L).email("vasua@test.org").build();
+        cacheManager.getCache(CacheConfig.USERS_BY_ID).put(1L, user);
+        cacheManager.getCache(CacheConfig.USERS_BY_ID).put(2L, user);
+        cacheManager.getCache(CacheConfig.USERS_BY_EMAIL).put("vasua@test.org", user);
+    }
+
+    @Test
+    public void onUserChanged_whenOk_evictedLocallyAndBroadcast() {
+        UserCacheInvalidationEvent event = new UserCacheInvalidationEvent(1L, "vasua@test.org", null);
+        BDDMockito.given(kafkaTemplate.send(TOPIC, 1L, event))
+                .willReturn(new CompletableFuture<SendResult<Long, UserCacheInvalidationEvent>>());
+
+        cacheInvalidator.onUserChanged(event);
+
+        assertNull(cacheManager.getCache(CacheConfig.USERS_BY_ID).get(1L));
+        assertNull(cacheManager.getCache(CacheConfig.USERS_BY_EMAIL).get("vasua@test.org"));
+        assertNotNull(cacheManager.getCache(CacheConfig.USERS_BY_ID).get(2L));
+        verify(kafkaTemplate).send(TOPIC, 1L, event);
+        verify(userEmailIndex, never()).add(anyString());
+    }
+
+    @Test
+    public void consumeInvalidation_whenOk_evictedLocallyAndEmailIndexed() {
+        UserCacheInvalidationEvent event = new UserCacheInvalidationEvent(2L, null, "petya@test.org");
+
+        cacheInvalidator.consumeInvalidation(new ConsumerRecord<>(TOPIC, 0, 0L, 2L, event));
+
+        assertNull(cacheManager.getCache(CacheConfig.USERS_BY_ID).get(2L));
+        assertNotNull(cacheManager.getCache(CacheConfig.USERS_BY_ID).get(1L));
+        assertNotNull(cacheManager.getCache(CacheConfig.USERS_BY_EMAIL).get("vasua@test.org"));
+        verify(userEmailIndex).add("petya@test.org");
+    }
+}
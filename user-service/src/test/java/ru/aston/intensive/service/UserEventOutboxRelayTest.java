@@ -0,0 +1,123 @@
+package ru.aston.intensive.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.aston.intensive.dto.UserEvent;
+import ru.aston.intensive.entity.UserEventOutboxEntity;
+import ru.aston.intensive.enumerated.DeliveryMode;
+import ru.aston.intensive.enumerated.UserStatus;
+import ru.aston.intensive.repository.UserEventOutboxRepository;
+import ru.aston.intensive.service.impl.UserEventOutboxRelayImpl;
+import ru.aston.intensive.util.config.OutboxProperty;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class UserEventOutboxRelayTest {
+
+    private final UserEventOutboxRepository outboxRepository = Mockito.mock(UserEventOutboxRepository.class);
+    private final UserKafkaProducer kafkaProducer = Mockito.mock(UserKafkaProducer.class);
+    private final PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OutboxProperty outboxProperty = new OutboxProperty();
+
+    private UserEventOutboxRelay relay;
+
+    @BeforeEach
+    public void init() {
+        outboxProperty.setBatchSize(2);
+        relay = new UserEventOutboxRelayImpl(outboxRepository, kafkaProducer, outboxProperty,
+                transactionManager, meterRegistry);
+    }
+
+    @Test
+    public void relay_whenKafkaAcknowledges_deletesPublishedEventsUntilDrained() {
+        List<UserEventOutboxEntity> fullBatch = List.of(
+                getOutboxEvent(1L, UserStatus.CREATED), getOutboxEvent(2L, UserStatus.DELETED));
+        List<UserEventOutboxEntity> lastBatch = List.of(getOutboxEvent(3L, UserStatus.CREATED));
+
+        BDDMockito.given(outboxRepository.lockNextBatch(2))
+                .willReturn(fullBatch)
+                .willReturn(lastBatch);
+        BDDMockito.given(kafkaProducer.sendUserEvent(any(UserEvent.class), eq(DeliveryMode.FIRE_AND_FORGET)))
+                .willReturn(CompletableFuture.completedFuture(null));
+        BDDMockito.given(outboxRepository.findOldestCreatedAt())
+                .willReturn(Optional.empty());
+
+        relay.relay();
+
+        verify(kafkaProducer, times(3)).sendUserEvent(any(UserEvent.class), eq(DeliveryMode.FIRE_AND_FORGET));
+        verify(kafkaProducer).sendUserEvent(new UserEvent(new UUID(0, 2), UserStatus.DELETED, "user2@mail.com"), DeliveryMode.FIRE_AND_FORGET);
+        verify(outboxRepository).deleteAllInBatch(fullBatch);
+        verify(outboxRepository).deleteAllInBatch(lastBatch);
+        assertEquals(3.0, meterRegistry.get("user.outbox.published").counter().count());
+        assertEquals(0.0, meterRegistry.get("user.outbox.lag").gauge().value());
+    }
+
+    @Test
+    public void relay_whenKafkaFails_keepsEventsAndReportsLag() {
+        List<UserEventOutboxEntity> batch = List.of(getOutboxEvent(1L, UserStatus.CREATED));
+
+        BDDMockito.given(outboxRepository.lockNextBatch(anyInt()))
+                .willReturn(batch);
+        BDDMockito.given(kafkaProducer.sendUserEvent(any(UserEvent.class), eq(DeliveryMode.FIRE_AND_FORGET)))
+                .willReturn(CompletableFuture.failedFuture(new IllegalStateException("broker is down")));
+        BDDMockito.given(outboxRepository.count())
+                .willReturn(1L);
+        BDDMockito.given(outboxRepository.findOldestCreatedAt())
+                .willReturn(Optional.of(LocalDateTime.now().minusMinutes(1)));
+
+        relay.relay();
+
+        verify(outboxRepository, never()).deleteAllInBatch(any());
+        verify(transactionManager).rollback(any());
+        assertEquals(1.0, meterRegistry.get("user.outbox.failures").counter().count());
+        assertEquals(1.0, meterRegistry.get("user.outbox.pending").gauge().value());
+        assertTrue(meterRegistry.get("user.outbox.lag").gauge().value() >= 60.0);
+    }
+
+    @Test
+    public void relay_whenSendFailsAtOnce_restOfBatchNotSent() {
+        List<UserEventOutboxEntity> batch = List.of(
+                getOutboxEvent(1L, UserStatus.CREATED), getOutboxEvent(2L, UserStatus.DELETED));
+
+        BDDMockito.given(outboxRepository.lockNextBatch(anyInt()))
+                .willReturn(batch);
+        BDDMockito.given(kafkaProducer.sendUserEvent(any(UserEvent.class), eq(DeliveryMode.FIRE_AND_FORGET)))
+                .willReturn(CompletableFuture.failedFuture(new IllegalStateException("no topic metadata")));
+        BDDMockito.given(outboxRepository.findOldestCreatedAt())
+                .willReturn(Optional.empty());
+
+        relay.relay();
+
+        verify(kafkaProducer).sendUserEvent(any(UserEvent.class), eq(DeliveryMode.FIRE_AND_FORGET));
+        verify(outboxRepository, never()).deleteAllInBatch(any());
+        verify(transactionManager).rollback(any());
+    }
+
+    private UserEventOutboxEntity getOutboxEvent(long id, UserStatus action) {
+        return UserEventOutboxEntity.builder()
+                .id(id)
+                .eventId(new UUID(0, id))
+                .action(action)
+                .email("user" + id + "@mail.com")
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,100 @@
+package ru.aston.intensive.service;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import ru.aston.intensive.dto.UserEvent;
+import ru.aston.intensive.enumerated.DeliveryMode;
+import ru.aston.intensive.enumerated.UserStatus;
+import ru.aston.intensive.service.impl.UserKafkaProducerImpl;
+import ru.aston.intensive.util.config.KafkaProperty;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class UserKafkaProducerTest {
+
+    private static final UserEvent EVENT = new UserEvent(UUID.randomUUID(), UserStatus.CREATED, "Vasua@vasua.com");
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, UserEvent> kafkaTemplate = Mockito.mock(KafkaTemplate.class);
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private UserKafkaProducer userKafkaProducer;
+
+    @BeforeEach
+    public void init() {
+        KafkaProperty kafkaProperty = new KafkaProperty();
+        kafkaProperty.setTopic("user-events");
+        userKafkaProducer = new UserKafkaProducerImpl(kafkaProperty, kafkaTemplate, circuitBreakerRegistry,
+                meterRegistry);
+    }
+
+    @Test
+    public void sendUserEvent_fireAndForget_returnsBeforeAck() {
+        CompletableFuture<SendResult<String, UserEvent>> brokerAck = new CompletableFuture<>();
+        BDDMockito.given(kafkaTemplate.send("user-events", EVENT.email(), EVENT))
+                .willReturn(brokerAck);
+
+        CompletableFuture<Void> ack = userKafkaProducer.sendUserEvent(EVENT, DeliveryMode.FIRE_AND_FORGET);
+
+        assertFalse(ack.isDone());
+        brokerAck.complete(sendResult());
+        assertTrue(ack.isDone());
+        assertEquals(1, meterRegistry.get("user.kafka.send").tag("result", "acknowledged").timer().count());
+        assertEquals(1, circuitBreaker().getMetrics().getNumberOfSuccessfulCalls());
+    }
+
+    @Test
+    public void sendUserEvent_waitForAck_whenBrokerFails_throwsAndRecordsFailure() {
+        BDDMockito.given(kafkaTemplate.send("user-events", EVENT.email(), EVENT))
+                .willReturn(CompletableFuture.failedFuture(new IllegalStateException("broker is down")));
+
+        assertThrows(IllegalStateException.class,
+                () -> userKafkaProducer.sendUserEvent(EVENT, DeliveryMode.WAIT_FOR_ACK));
+
+        assertEquals(1, meterRegistry.get("user.kafka.send").tag("result", "failed").timer().count());
+        assertEquals(1, circuitBreaker().getMetrics().getNumberOfFailedCalls());
+    }
+
+    @Test
+    public void sendUserEvent_whenCircuitBreakerIsOpen_notSent() {
+        circuitBreaker().transitionToOpenState();
+
+        CompletableFuture<Void> ack = userKafkaProducer.sendUserEvent(EVENT, DeliveryMode.FIRE_AND_FORGET);
+
+        assertTrue(ack.isCompletedExceptionally());
+        assertThrows(CallNotPermittedException.class,
+                () -> userKafkaProducer.sendUserEvent(EVENT, DeliveryMode.WAIT_FOR_ACK));
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any(UserEvent.class));
+    }
+
+    private CircuitBreaker circuitBreaker() {
+        return circuitBreakerRegistry.circuitBreaker(UserKafkaProducerImpl.CIRCUIT_BREAKER_NAME);
+    }
+
+    private static SendResult<String, UserEvent> sendResult() {
+        return new SendResult<>(new ProducerRecord<>("user-events", EVENT.email(), EVENT),
+                new RecordMetadata(new TopicPartition("user-events", 0), 0, 0, 0, 0, 0));
+    }
+}
@@ -1,5 +1,6 @@
 package ru.aston.intensive.service;
 
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -7,22 +8,43 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.ActiveProfiles;
-import ru.aston.intensive.dto.UserEvent;
+import ru.aston.intensive.dto.UserBatchItemResponseDto;
+import ru.aston.intensive.dto.UserCacheInvalidationEvent;
+import ru.aston.intensive.dto.UserNameChangedEvent;
+import ru.aston.intensive.dto.UserDeleteResult;
+import ru.aston.intensive.dto.UserNameSuggestionDto;
+import ru.aston.intensive.dto.UserPatchRequestDto;
+import ru.aston.intensive.dto.UserPatchResult;
+import ru.aston.intensive.dto.UserResponseDto;
 import ru.aston.intensive.entity.UserEntity;
+import ru.aston.intensive.entity.UserEventOutboxEntity;
+import ru.aston.intensive.enumerated.UserStatus;
 import ru.aston.intensive.exception.EmailExistingException;
 import ru.aston.intensive.exception.UserNotFoundException;
+import ru.aston.intensive.exception.UserVersionMismatchException;
+import ru.aston.intensive.repository.UserEventOutboxRepository;
 import ru.aston.intensive.repository.UserRepository;
 import ru.aston.intensive.service.impl.UserServiceImpl;
+import ru.aston.intensive.util.mapper.UserMapper;
 
 import java.time.LocalDateTime;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
@@ -31,9 +53,14 @@ import static org.mockito.Mockito.verify;
 class UserServiceTest {
 
     private UserRepository userRepository = Mockito.mock(UserRepository.class);
-    private UserKafkaProducer kafkaProducer = Mockito.mock(UserKafkaProducer.class);
+    private UserEventOutboxRepository outboxRepository = Mockito.mock(UserEventOutboxRepository.class);
+    private EntityManager entityManager = Mockito.mock(EntityManager.class);
+    private ApplicationEventPublisher eventPublisher = Mockito.mock(ApplicationEventPublisher.class);
+    private UserEmailIndex userEmailIndex = Mockito.mock(UserEmailIndex.class);
+    private UserNameIndex userNameIndex = Mockito.mock(UserNameIndex.class);
 
-    private UserService userService = new UserServiceImpl(kafkaProducer, userRepository);
+    private UserService userService = new UserServiceImpl(userRepository, outboxRepository, entityManager,
+            eventPublisher, userEmailIndex, userNameIndex);
 
     private List<UserEntity> userEntityList;
 
@@ -69,6 +96,8 @@ class UserServiceTest {
         userEntityList.add(user2);
         userEntityList.add(user3);
 
+        BDDMockito.given(userEmailIndex.mightContain(anyString()))
+                .willReturn(true);
     }
 
     @AfterEach
@@ -78,99 +107,208 @@ class UserServiceTest {
 
     @Test
     public void findAll_whenOk() {
-        BDDMockito.given(userRepository.findAll())
-                .willReturn(userEntityList);
+        List<UserResponseDto> expectedUser = userEntityList.stream()
+                .map(UserMapper::entityToDto)
+                .toList();
+        BDDMockito.given(userRepository.findAllDtos())
+                .willReturn(expectedUser);
 
-        List<UserEntity> expectedUser = userEntityList;
-        List<UserEntity> actualUser = userService.findAll();
+        List<UserResponseDto> actualUser = userService.findAll();
 
-        assertEquals(expectedUser.size(), actualUser.size());
-        verify(userRepository).findAll();
+        assertEquals(expectedUser, actualUser);
+        verify(userRepository).findAllDtos();
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    public void findPage_whenFirstPage_startsFromZeroId() {
+        BDDMockito.given(userRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2)))
+                .willReturn(userEntityList.subList(0, 2));
+
+        List<UserEntity> actualUsers = userService.findPage(null, 2);
+
+        assertEquals(2, actualUsers.size());
+        verify(userRepository).findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2));
+    }
+
+    @Test
+    public void streamAll_whenOk_eachUserConsumedAndDetached() {
+        BDDMockito.given(userRepository.streamAll())
+                .willReturn(userEntityList.stream());
+
+        List<UserEntity> consumedUsers = new LinkedList<>();
+        Consumer<UserEntity> consumer = consumedUsers::add;
+        userService.streamAll(consumer);
+
+        assertEquals(userEntityList, consumedUsers);
+        userEntityList.forEach(user -> verify(entityManager).detach(user));
     }
 
     @Test
     public void findById_whenIdIsExist_userEntityWithId() {
         long id = 1L;
 
-        BDDMockito.given(userRepository.findById(id))
-                .willReturn(Optional.ofNullable(userEntityList.get(1)));
+        BDDMockito.given(userRepository.findDtoById(id))
+                .willReturn(Optional.of(UserMapper.entityToDto(userEntityList.get(1))));
 
         UserEntity expectedUser = userEntityList.get(1);
-        UserEntity actualUser = userService.findById(id);
+        UserResponseDto actualUser = userService.findById(id);
 
         assertNotNull(actualUser);
-        assertNotNull(actualUser.getId());
-        assertEquals(expectedUser.getId(), actualUser.getId());
-        assertEquals(expectedUser.getEmail(), actualUser.getEmail());
+        assertNotNull(actualUser.id());
+        assertEquals(expectedUser.getId(), actualUser.id());
+        assertEquals(expectedUser.getEmail(), actualUser.email());
 
-        verify(userRepository).findById(id);
+        verify(userRepository).findDtoById(id);
+        verify(userRepository, never()).findById(id);
     }
 
     @Test
     public void findById_whenIdIsNotExist_throwsUserNotFoundException() {
         long id = 2000L;
 
-        BDDMockito.given(userRepository.findById(id))
+        BDDMockito.given(userRepository.findDtoById(id))
                 .willReturn(Optional.empty());
 
         assertThrows(UserNotFoundException.class, () -> userService.findById(id));
 
-        verify(userRepository).findById(id);
+        verify(userRepository).findDtoById(id);
+    }
+
+    @Test
+    public void patch_whenVersionMatches_singleStatementAndCacheInvalidated() {
+        UserPatchRequestDto patch = new UserPatchRequestDto(null, "new@mail.com", null);
+        UserPatchResult patched = patchResult(1L, "Vasua", "new@mail.com", 4L, "Vasua@vasua.com");
+
+        BDDMockito.given(userRepository.patch(1L, null, "new@mail.com", null, 3L))
+                .willReturn(Optional.of(patched));
+
+        UserResponseDto user = userService.patch(1L, patch, 3L);
+
+        assertEquals("new@mail.com", user.email());
+        assertEquals(4L, user.version());
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, never()).findByEmail(anyString());
+        verify(eventPublisher).publishEvent(new UserCacheInvalidationEvent(1L, "Vasua@vasua.com", "new@mail.com"));
+    }
+
+    @Test
+    public void patch_whenVersionIsOutdated_throwsUserVersionMismatchException() {
+        UserPatchRequestDto patch = new UserPatchRequestDto("Vasilii", null, null);
+
+        BDDMockito.given(userRepository.patch(1L, "Vasilii", null, null, 2L))
+                .willReturn(Optional.empty());
+        BDDMockito.given(userRepository.existsById(1L))
+                .willReturn(true);
+
+        assertThrows(UserVersionMismatchException.class, () -> userService.patch(1L, patch, 2L));
+        verify(eventPublisher, never()).publishEvent(any(UserCacheInvalidationEvent.class));
+    }
+
+    @Test
+    public void patch_whenIdIsNotExist_throwsUserNotFoundException() {
+        UserPatchRequestDto patch = new UserPatchRequestDto("Vasilii", null, null);
+
+        BDDMockito.given(userRepository.patch(2000L, "Vasilii", null, null, null))
+                .willReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userService.patch(2000L, patch, null));
+    }
+
+    @Test
+    public void patch_whenEmailIsExist_throwsExistingEmailException() {
+        UserPatchRequestDto patch = new UserPatchRequestDto(null, "Petya@petya.com", null);
+
+        BDDMockito.given(userRepository.patch(1L, null, "Petya@petya.com", null, null))
+                .willThrow(new DataIntegrityViolationException("users_email_key"));
+
+        assertThrows(EmailExistingException.class, () -> userService.patch(1L, patch, null));
     }
 
     @Test
     public void delete_whenIdIsExist() {
         long id = 1L;
 
-        BDDMockito.given(userRepository.findById(id))
-                .willReturn(Optional.of(userEntityList.get(1)));
-        BDDMockito.willDoNothing()
-                .given(kafkaProducer)
-                .sendUserEvent(any(UserEvent.class));
+        String email = userEntityList.get(1).getEmail();
+
+        BDDMockito.given(userRepository.deleteReturningEmail(id))
+                .willReturn(Optional.of(email));
 
         userService.delete(id);
 
-        verify(userRepository).findById(id);
-        verify(userRepository).delete(any(UserEntity.class));
-        verify(kafkaProducer).sendUserEvent(any(UserEvent.class));
+        verify(userRepository).deleteReturningEmail(id);
+        verify(userRepository, never()).findById(id);
+        verify(outboxRepository).save(argThat(event -> event.getAction() == UserStatus.DELETED
+                && email.equals(event.getEmail()) && event.getEventId() != null));
+        verify(eventPublisher).publishEvent(new UserCacheInvalidationEvent(id, email, null));
+        verify(eventPublisher).publishEvent(new UserNameChangedEvent(id, null));
     }
 
     @Test
     public void delete_whenIdIsNotExist_throwsUserNotFoundException() {
         long id = 2000L;
 
-        BDDMockito.given(userRepository.findById(id))
+        BDDMockito.given(userRepository.deleteReturningEmail(id))
                 .willReturn(Optional.empty());
-        BDDMockito.willDoNothing()
-                .given(kafkaProducer)
-                .sendUserEvent(any(UserEvent.class));
 
         assertThrows(UserNotFoundException.class, () -> userService.delete(id));
 
-        verify(userRepository).findById(id);
-        verify(userRepository, never()).deleteById(id);
-        verify(kafkaProducer, never()).sendUserEvent(any(UserEvent.class));
+        verify(userRepository).deleteReturningEmail(id);
+        verify(outboxRepository, never()).save(any(UserEventOutboxEntity.class));
     }
 
     @Test
-    public void create_whenEmailIsNotExist() {
+    public void create_whenEmailIsNotExist_singleInsert() {
         UserEntity insertUser = getUser();
 
         UserEntity savedUser = getUserWithId(10L);
 
-        BDDMockito.given(userRepository.findByEmail(insertUser.getEmail()))
-                .willReturn(Optional.empty());
-        BDDMockito.given(userRepository.save(insertUser))
-                .willReturn(savedUser);
-        BDDMockito.willDoNothing()
-                .given(kafkaProducer)
-                .sendUserEvent(any(UserEvent.class));
+        BDDMockito.given(userRepository.insertIfEmailFree(insertUser.getName(), insertUser.getEmail(),
+                        insertUser.getAge()))
+                .willReturn(Optional.of(savedUser));
+
+        assertEquals(savedUser, userService.create(insertUser));
+
+        verify(userRepository, never()).findByEmail(anyString());
+        verify(userRepository, never()).save(any(UserEntity.class));
+        verify(eventPublisher).publishEvent(
+                new UserCacheInvalidationEvent(savedUser.getId(), null, savedUser.getEmail()));
+        verify(eventPublisher).publishEvent(new UserNameChangedEvent(savedUser.getId(), savedUser.getName()));
+        verify(outboxRepository).save(any(UserEventOutboxEntity.class));
+    }
+
+    @Test
+    public void autocomplete_whenPrefixIsPadded_strippedPrefix() {
+        List<UserNameSuggestionDto> suggestions = List.of(new UserNameSuggestionDto(1L, "Vasua"));
+        BDDMockito.given(userNameIndex.complete("Va", 10))
+                .willReturn(suggestions);
+
+        assertEquals(suggestions, userService.autocomplete("  Va ", 10));
+    }
+
+    @Test
+    public void autocomplete_whenPrefixIsBlank_emptyWithoutIndex() {
+        assertTrue(userService.autocomplete("  ", 10).isEmpty());
+
+        verify(userNameIndex, never()).complete(anyString(), anyInt());
+    }
 
-        userService.create(insertUser);
+    @Test
+    public void existsByEmail_whenEmailIndexRulesOutEmail_false() {
+        BDDMockito.given(userEmailIndex.mightContain("free@mail.com"))
+                .willReturn(false);
+
+        assertFalse(userService.existsByEmail("free@mail.com"));
+
+        verify(userRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    public void existsByEmail_whenEmailExist_true() {
+        BDDMockito.given(userRepository.findByEmail(userEntityList.get(0).getEmail()))
+                .willReturn(Optional.of(userEntityList.get(0)));
 
-        verify(userRepository).findByEmail(insertUser.getEmail());
-        verify(userRepository).save(insertUser);
-        verify(kafkaProducer).sendUserEvent(any(UserEvent.class));
+        assertTrue(userService.existsByEmail(userEntityList.get(0).getEmail()));
     }
 
     @Test
@@ -181,17 +319,13 @@ class UserServiceTest {
         UserEntity insertUser = getUser();
         insertUser.setEmail(email);
 
-        BDDMockito.given(userRepository.findByEmail(email))
-                .willReturn(Optional.of(userEntityList.get(id)));
-        BDDMockito.willDoNothing()
-                .given(kafkaProducer)
-                .sendUserEvent(any(UserEvent.class));
+        BDDMockito.given(userRepository.insertIfEmailFree(insertUser.getName(), email, insertUser.getAge()))
+                .willReturn(Optional.empty());
 
         assertThrows(EmailExistingException.class, () -> userService.create(insertUser));
 
-        verify(userRepository).findByEmail(email);
-        verify(userRepository, never()).save(insertUser);
-        verify(kafkaProducer, never()).sendUserEvent(any(UserEvent.class));
+        verify(eventPublisher, never()).publishEvent(any(UserCacheInvalidationEvent.class));
+        verify(outboxRepository, never()).save(any(UserEventOutboxEntity.class));
     }
 
     @Test
@@ -203,6 +337,8 @@ class UserServiceTest {
         expectedUser.setEmail(newUser.getEmail());
         expectedUser.setAge(newUser.getAge());
 
+        String oldEmail = userEntityList.get((int) id).getEmail();
+
         BDDMockito.given(userRepository.findById(id))
                 .willReturn(Optional.of(userEntityList.get((int) id)));
         BDDMockito.given(userRepository.findByEmail(anyString()))
@@ -218,6 +354,27 @@ class UserServiceTest {
 
         verify(userRepository).findById(id);
         verify(userRepository).findByEmail(newUser.getEmail());
+        verify(eventPublisher).publishEvent(new UserCacheInvalidationEvent(
+                expectedUser.getId(), oldEmail, newUser.getEmail()));
+    }
+
+    @Test
+    public void update_whenEmailIsNull_emailKept() {
+        long id = 2;
+        UserEntity newUser = getUser();
+        newUser.setEmail(null);
+        String oldEmail = userEntityList.get((int) id).getEmail();
+
+        BDDMockito.given(userRepository.findById(id))
+                .willReturn(Optional.of(userEntityList.get((int) id)));
+
+        UserEntity actualUser = userService.update(id, newUser);
+
+        assertEquals(oldEmail, actualUser.getEmail());
+        assertEquals(newUser.getName(), actualUser.getName());
+        verify(userRepository, never()).findByEmail(anyString());
+        verify(userRepository, never()).flush();
+        verify(eventPublisher).publishEvent(new UserCacheInvalidationEvent(actualUser.getId(), oldEmail, null));
     }
 
     @Test
@@ -260,6 +417,99 @@ class UserServiceTest {
         verify(userRepository, never()).findByEmail(newUser.getEmail());
     }
 
+    @Test
+    public void createAll_whenEmailTakenOrDuplicated_conflictForThoseItems() {
+        UserEntity newUser = getUser();
+        UserEntity takenEmailUser = getUser();
+        takenEmailUser.setEmail(userEntityList.get(0).getEmail());
+        UserEntity duplicatedEmailUser = getUser();
+
+        BDDMockito.given(userRepository.findExistingEmails(anyCollection()))
+                .willReturn(List.of(userEntityList.get(0).getEmail()));
+        BDDMockito.given(userRepository.saveAll(List.of(newUser)))
+                .willAnswer(invocation -> {
+                    newUser.setId(50L);
+                    return List.of(newUser);
+                });
+
+        List<UserBatchItemResponseDto> results =
+                userService.createAll(List.of(newUser, takenEmailUser, duplicatedEmailUser));
+
+        assertEquals(List.of(201, 409, 409), results.stream().map(UserBatchItemResponseDto::status).toList());
+        verify(userRepository).findExistingEmails(anyCollection());
+        verify(userRepository).saveAll(List.of(newUser));
+        verify(userRepository).flush();
+        verify(eventPublisher).publishEvent(new UserNameChangedEvent(50L, newUser.getName()));
+        verify(outboxRepository).saveAll(argThat(events -> ((List<?>) events).size() == 1));
+    }
+
+    @Test
+    public void createAll_whenEmailIndexMissesTakenEmail_conflictForThatItem() {
+        UserEntity takenEmailUser = getUser();
+        takenEmailUser.setEmail(userEntityList.get(0).getEmail());
+
+        BDDMockito.given(userEmailIndex.mightContain(anyString()))
+                .willReturn(false);
+        BDDMockito.given(userRepository.findExistingEmails(Set.of(takenEmailUser.getEmail())))
+                .willReturn(List.of(takenEmailUser.getEmail()));
+
+        List<UserBatchItemResponseDto> results = userService.createAll(List.of(takenEmailUser));
+
+        assertEquals(List.of(409), results.stream().map(UserBatchItemResponseDto::status).toList());
+        verify(userRepository).saveAll(List.of());
+    }
+
+    @Test
+    public void updateAll_whenIdNotExist_notFoundForThatItem() {
+        UserEntity existingUser = copyOfUser(userEntityList.get(0));
+        existingUser.setName("Vasilii");
+        UserEntity notExistingUser = getUserWithId(2000L);
+
+        BDDMockito.given(userRepository.findAllById(anyCollection()))
+                .willReturn(List.of(userEntityList.get(0)));
+
+        List<UserBatchItemResponseDto> results = userService.updateAll(List.of(existingUser, notExistingUser));
+
+        assertEquals(List.of(200, 404), results.stream().map(UserBatchItemResponseDto::status).toList());
+        assertEquals("Vasilii", userEntityList.get(0).getName());
+        verify(userRepository, never()).findExistingEmails(anyCollection());
+        verify(userRepository).flush();
+    }
+
+    @Test
+    public void deleteAll_whenSomeIdsExist_deletedInOneStatement() {
+        List<UserDeleteResult> deleted = List.of(deleteResult(1L, "a@mail.ru"), deleteResult(2L, "b@mail.ru"));
+        BDDMockito.given(userRepository.deleteAllReturningEmail(anyCollection()))
+                .willReturn(deleted);
+
+        List<UserBatchItemResponseDto> results = userService.deleteAll(List.of(1L, 2L, 2000L));
+
+        assertEquals(List.of(204, 204, 404), results.stream().map(UserBatchItemResponseDto::status).toList());
+        verify(userRepository).deleteAllReturningEmail(Set.of(1L, 2L, 2000L));
+        verify(userRepository, never()).findAllById(anyCollection());
+        verify(eventPublisher).publishEvent(new UserCacheInvalidationEvent(2L, "b@mail.ru", null));
+        verify(outboxRepository).saveAll(argThat(events -> ((List<?>) events).size() == 2));
+    }
+
+    private UserDeleteResult deleteResult(long id, String email) {
+        UserDeleteResult result = Mockito.mock(UserDeleteResult.class);
+        BDDMockito.given(result.getId()).willReturn(id);
+        BDDMockito.given(result.getEmail()).willReturn(email);
+        return result;
+    }
+
+    private UserPatchResult patchResult(long id, String name, String email, long version, String oldEmail) {
+        UserPatchResult result = Mockito.mock(UserPatchResult.class);
+        BDDMockito.given(result.getId()).willReturn(id);
+        BDDMockito.given(result.getName()).willReturn(name);
+        BDDMockito.given(result.getEmail()).willReturn(email);
+        BDDMockito.given(result.getAge()).willReturn(30);
+        BDDMockito.given(result.getVersion()).willReturn(version);
+        BDDMockito.given(result.getUpdatedAt()).willReturn(LocalDateTime.now());
+        BDDMockito.given(result.getOldEmail()).willReturn(oldEmail);
+        return result;
+    }
+
     private UserEntity getUser() {
         return UserEntity.builder()
                 .name("Dobryna")
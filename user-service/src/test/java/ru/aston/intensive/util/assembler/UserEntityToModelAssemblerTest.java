@@ -0,0 +1,75 @@
+package ru.aston.intensive.util.assembler;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import ru.aston.intensive.controller.UserControllerImpl;
+import ru.aston.intensive.dto.UserResponseDto;
+import ru.aston.intensive.entity.UserEntity;
+import ru.aston.intensive.util.mapper.UserMapper;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+class UserEntityToModelAssemblerTest {
+
+    private final UserEntityToModelAssembler assembler = new UserEntityToModelAssembler();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @AfterEach
+    public void destroy() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "http, localhost, 80, ''",
+            "http, localhost, 8080, ''",
+            "https, users.example.org, 443, ''",
+            "https, users.example.org, 8443, /user-service"
+    })
+    void toModel_whenAnyBaseUri_sameLinksAsLinkBuilder(String scheme, String host, int port, String contextPath)
+            throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", contextPath + "/api/users/7");
+        request.setScheme(scheme);
+        request.setServerName(host);
+        request.setServerPort(port);
+        request.setContextPath(contextPath);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        UserEntity user = UserEntity.builder()
+                .id(7L)
+                .name("Vasua")
+                .email("vasua@test.org")
+                .age(30)
+                .build();
+
+        String expectedJson = toJson(linkBuilderModel(user));
+
+        assertEquals(expectedJson, toJson(assembler.toModel(user)));
+        assertEquals(expectedJson, toJson(assembler.toModel(user, assembler.currentLinkTemplates())));
+    }
+
+    private String toJson(EntityModel<UserResponseDto> model) throws JsonProcessingException {
+        return objectMapper.writeValueAsString(List.of(model.getContent(), model.getLinks()));
+    }
+
+    private EntityModel<UserResponseDto> linkBuilderModel(UserEntity entity) {
+        return EntityModel.of(UserMapper.entityToDto(entity),
+                linkTo(methodOn(UserControllerImpl.class).find(entity.getId(), null)).withSelfRel(),
+                linkTo(methodOn(UserControllerImpl.class).create(null)).withRel("create"),
+                linkTo(methodOn(UserControllerImpl.class).update(entity.getId(), null)).withRel("update"),
+                linkTo(methodOn(UserControllerImpl.class).delete(entity.getId())).withRel("delete"),
+                linkTo(methodOn(UserControllerImpl.class).findAll()).withRel(IanaLinkRelations.COLLECTION));
+    }
+}
@@ -0,0 +1,121 @@
+package ru.aston.intensive.util.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyInt;
+
+class ReadReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = Mockito.mock(DataSource.class);
+    private final DataSource firstReplica = Mockito.mock(DataSource.class);
+    private final DataSource secondReplica = Mockito.mock(DataSource.class);
+    private final Connection primaryConnection = Mockito.mock(Connection.class);
+    private final Connection firstReplicaConnection = Mockito.mock(Connection.class);
+    private final Connection secondReplicaConnection = Mockito.mock(Connection.class);
+
+    private ReadReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    public void init() throws SQLException {
+        BDDMockito.given(primary.getConnection()).willReturn(primaryConnection);
+        BDDMockito.given(firstReplica.getConnection()).willReturn(firstReplicaConnection);
+        BDDMockito.given(secondReplica.getConnection()).willReturn(secondReplicaConnection);
+        BDDMockito.given(firstReplicaConnection.isValid(anyInt())).willReturn(true);
+        BDDMockito.given(secondReplicaConnection.isValid(anyInt())).willReturn(true);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", firstReplica);
+        replicas.put("replica-1", secondReplica);
+        routingDataSource = new ReadReplicaRoutingDataSource(primary, replicas, Duration.ofSeconds(1));
+        routingDataSource.afterPropertiesSet();
+    }
+
+    @AfterEach
+    public void clear() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReplicaRoutingContext.clear();
+    }
+
+    @Test
+    public void getConnection_whenReadOnlyTransaction_replicasInTurn() throws SQLException {
+        beginTransaction(true);
+
+        assertSame(firstReplicaConnection, routingDataSource.getConnection());
+        assertSame(secondReplicaConnection, routingDataSource.getConnection());
+        assertSame(firstReplicaConnection, routingDataSource.getConnection());
+    }
+
+    @Test
+    public void getConnection_whenWriteTransaction_primary() throws SQLException {
+        beginTransaction(false);
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+    }
+
+    @Test
+    public void getConnection_whenRequestHasWritten_readsFromPrimary() throws SQLException {
+        ReplicaRoutingContext.begin(false);
+        beginTransaction(false);
+        routingDataSource.getConnection();
+
+        beginTransaction(true);
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+    }
+
+    @Test
+    public void getConnection_whenRecentWriteOfClient_readsFromPrimary() throws SQLException {
+        ReplicaRoutingContext.begin(true);
+        beginTransaction(true);
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+    }
+
+    @Test
+    public void getConnection_whenReplicaIsDown_primaryAndReplicaSkipped() throws SQLException {
+        BDDMockito.given(firstReplica.getConnection()).willThrow(new SQLException("connection refused"));
+        beginTransaction(true);
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+        assertEquals(List.of("replica-1"), routingDataSource.getHealthyReplicas());
+        assertSame(secondReplicaConnection, routingDataSource.getConnection());
+    }
+
+    @Test
+    public void checkReplicas_whenReplicasRecoverOrFail_healthyUpdated() throws SQLException {
+        BDDMockito.given(secondReplicaConnection.isValid(anyInt())).willReturn(false);
+
+        routingDataSource.checkReplicas();
+        assertEquals(List.of("replica-0"), routingDataSource.getHealthyReplicas());
+
+        BDDMockito.given(firstReplica.getConnection()).willThrow(new SQLException("connection refused"));
+        routingDataSource.checkReplicas();
+        beginTransaction(true);
+        assertSame(primaryConnection, routingDataSource.getConnection());
+
+        BDDMockito.willReturn(firstReplicaConnection).given(firstReplica).getConnection();
+        routingDataSource.checkReplicas();
+        assertEquals(List.of("replica-0"), routingDataSource.getHealthyReplicas());
+    }
+
+    private static void beginTransaction(boolean readOnly) {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+}
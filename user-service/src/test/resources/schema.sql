@@ -1,9 +1,29 @@
 DROP TABLE IF EXISTS users CASCADE;
 
 CREATE TABLE IF NOT EXISTS users(
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY (INCREMENT BY 50) PRIMARY KEY,
     name VARCHAR(100),
     email VARCHAR(150) UNIQUE NOT NULL ,
     age INTEGER,
+    created_at TIMESTAMP(0) DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0
+);
+
+CREATE INDEX IF NOT EXISTS users_name_prefix_idx ON users (lower(name) text_pattern_ops);
+CREATE INDEX IF NOT EXISTS users_age_idx ON users (age);
+CREATE INDEX IF NOT EXISTS users_created_at_idx ON users (created_at);
+CREATE INDEX IF NOT EXISTS users_email_domain_idx ON users (lower(split_part(email, '@', 2)));
+
+DROP TABLE IF EXISTS user_event_outbox;
+
+CREATE TABLE IF NOT EXISTS user_event_outbox(
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY (INCREMENT BY 50) PRIMARY KEY,
+    seq BIGINT GENERATED ALWAYS AS IDENTITY UNIQUE,
+    event_id UUID NOT NULL DEFAULT gen_random_uuid(),
+    action VARCHAR(20) NOT NULL,
+    email VARCHAR(150) NOT NULL,
     created_at TIMESTAMP(0) DEFAULT CURRENT_TIMESTAMP
 );
+
+CREATE INDEX IF NOT EXISTS user_event_outbox_email_seq_idx ON user_event_outbox (email, seq);